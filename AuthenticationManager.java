@@ -4,9 +4,12 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
-import java.util.Scanner;
+import java.util.List;
 
 public class AuthenticationManager {
+    // Computer players are stored in users.txt with "bot:<strategy>" instead of a password hash.
+    // A Base64 hash never contains ':', so no password can log in as a bot.
+    public static final String BOT_PREFIX = "bot:";
 
     /*
      * Prompt: Hash the password and encode it in Base64.
@@ -25,33 +28,64 @@ public class AuthenticationManager {
      * Prompt: Authenticate the admin using the hashed password
      */
     public static boolean authenticateAdmin(String gameName, String password) {
+        long start = System.nanoTime();
+        GameEvents.AuthEvent event = GameEvents.beginAuth();
+        boolean authenticated = false;
         try {
-            String storedHash = GameFileManager.getHashedPassword(gameName, "admin");
+            String storedHash = GameStores.get().getHashedPassword(gameName, "admin");
             if (storedHash == null) {
                 return false;
             }
             
             String inputHash = hashPassword(password);
-            return storedHash.equals(inputHash);
+            authenticated = storedHash.equals(inputHash);
+            return authenticated;
         } catch (IOException e) {
             System.err.println("Error authenticating admin: " + e.getMessage());
             return false;
+        } finally {
+            CommandStats.record(CommandStats.AUTH, start);
+            GameEvents.commitAuth(event, gameName, "admin", true, authenticated);
         }
     }
     
 
     public static boolean authenticateUser(String gameName, String username, String password) {
+        long start = System.nanoTime();
+        GameEvents.AuthEvent event = GameEvents.beginAuth();
+        boolean authenticated = false;
         try {
-            String storedHash = GameFileManager.getHashedPassword(gameName, username);
-            if (storedHash == null) {
+            String storedHash = GameStores.get().getHashedPassword(gameName, username);
+            if (storedHash == null || storedHash.startsWith(BOT_PREFIX)) {
                 return false;
             }
             
             String inputHash = hashPassword(password);
-            return storedHash.equals(inputHash);
+            authenticated = storedHash.equals(inputHash);
+            return authenticated;
         } catch (IOException e) {
             System.err.println("Error authenticating user: " + e.getMessage());
             return false;
+        } finally {
+            CommandStats.record(CommandStats.AUTH, start);
+            GameEvents.commitAuth(event, gameName, username, "admin".equals(username), authenticated);
+        }
+    }
+    
+    // Check a session token from --login instead of a password; no hashing and no users.txt read
+    public static boolean authenticateSession(String gameName, String username, String token) {
+        long start = System.nanoTime();
+        GameEvents.AuthEvent event = GameEvents.beginAuth();
+        boolean authenticated = false;
+        try {
+            authenticated = SessionManager.validate(gameName, username, token);
+            return authenticated;
+        } catch (IOException e) {
+            System.err.println("Error checking session: " + e.getMessage());
+            return false;
+        } finally {
+            CommandStats.record(CommandStats.AUTH, start);
+            GameEvents.commitAuth(event, gameName, username, "admin".equals(username), authenticated);
         }
     }
     
@@ -59,6 +93,12 @@ public class AuthenticationManager {
      * Make a method to read from the console without echoing the password.
      */
     public static String readPassword() {
+        // Commands run by the daemon ask the connected client instead of the daemon's console
+        String routed = ConsoleRouter.readPassword();
+        if (routed != null) {
+            return routed;
+        }
+
         Console console = System.console();
         if (console != null) {
             char[] passwordChars = console.readPassword();
@@ -70,30 +110,45 @@ public class AuthenticationManager {
             return password;
         } else {
             // If console is not available (e.g., running from an IDE)
-            Scanner scanner = new Scanner(System.in);
             System.out.print("Password (input will be visible): ");
-            return scanner.nextLine();
+            try {
+                String line = ConsoleRouter.readLine();
+                return line == null ? "" : line;
+            } catch (IOException e) {
+                System.err.println("Error reading password: " + e.getMessage());
+                return "";
+            }
         }
     }
     
-    public static boolean initializeGame(String gameName) {
-
-        if (GameFileManager.gameExists(gameName)) {
+    // Checks run before asking for the new admin password, and again when the game is created
+    public static boolean canInitializeGame(String gameName) {
+        if (GameStores.get().gameExists(gameName)) {
             System.err.println("Game '" + gameName + "' already exists.");
             return false;
         }
+        return true;
+    }
+
+    public static boolean initializeGame(String gameName, String hashedPassword) {
+
+        if (!canInitializeGame(gameName)) {
+            return false;
+        }
         
-        if (!GameFileManager.createGameDirectory(gameName)) {
+        boolean created;
+        try {
+            created = GameStores.get().createGame(gameName);
+        } catch (IOException e) {
+            created = false;
+        }
+        if (!created) {
             System.err.println("Failed to create game directory.");
             return false;
         }
 
-        System.out.println("Set an admin password for game '" + gameName + "':");
-        String password = readPassword();
-        
         try {
-            String hashedPassword = hashPassword(password);
-            GameFileManager.saveAdminCredentials(gameName, hashedPassword);
+            GameStores.get().saveAdminCredentials(gameName, hashedPassword);
             System.out.println("Game '" + gameName + "' initialized successfully.");
             return true;
         } catch (IOException e) {
@@ -102,9 +157,10 @@ public class AuthenticationManager {
         }
     }
     
-    public static boolean addUser(String gameName, String username) {
+    // Checks run before asking for any password, and again when the user is stored
+    public static boolean canAddUser(String gameName, String username) {
 
-        if (!GameFileManager.gameExists(gameName)) {
+        if (!GameStores.get().gameExists(gameName)) {
             System.err.println("Game '" + gameName + "' does not exist.");
             return false;
         }
@@ -113,20 +169,14 @@ public class AuthenticationManager {
             System.err.println("Username 'admin' is reserved and cannot be used as a player name.");
             return false;
         }
-        
-        System.out.println("Enter admin password for game '" + gameName + "':");
-        String adminPassword = readPassword();
-        if (!authenticateAdmin(gameName, adminPassword)) {
-            System.err.println("Invalid admin password.");
-            return false;
-        }
-        
-        System.out.println("Set a password for user '" + username + "':");
-        String userPassword = readPassword();
-        
+
+        return hasFreeSeat(gameName, username);
+    }
+
+    // The caller has checked the admin password; the user's password comes already hashed
+    public static boolean addUser(String gameName, String username, String hashedPassword) {
         try {
-            String hashedPassword = hashPassword(userPassword);
-            GameFileManager.addUser(gameName, username, hashedPassword);
+            GameStores.get().addUser(gameName, username, hashedPassword);
             System.out.println("User '" + username + "' added successfully.");
             return true;
         } catch (IOException e) {
@@ -135,23 +185,71 @@ public class AuthenticationManager {
         }
     }
     
-    public static boolean removeUser(String gameName, String username) {
+    public static boolean canAddBot(String gameName, String botName, String strategySpec) {
 
-        if (!GameFileManager.gameExists(gameName)) {
+        if (!GameStores.get().gameExists(gameName)) {
             System.err.println("Game '" + gameName + "' does not exist.");
             return false;
         }
-        
-        System.out.println("Enter admin password for game '" + gameName + "':");
-        String adminPassword = readPassword();
-        if (!authenticateAdmin(gameName, adminPassword)) {
-            System.err.println("Invalid admin password.");
+
+        if (botName.equalsIgnoreCase("admin")) {
+            System.err.println("Username 'admin' is reserved and cannot be used as a player name.");
             return false;
         }
-        
+
+        try {
+            Strategy.fromSpec(strategySpec);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return false;
+        }
+
+        return hasFreeSeat(gameName, botName);
+    }
+
+    public static boolean addBot(String gameName, String botName, String strategySpec) {
+        try {
+            GameStores.get().addUser(gameName, botName, BOT_PREFIX + strategySpec);
+            System.out.println("Bot '" + botName + "' (" + strategySpec + ") added successfully.");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error adding bot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Whether the user is already in the game or there is still a seat for them
+    private static boolean hasFreeSeat(String gameName, String username) {
+        try {
+            List<String> users = GameStores.get().getUsers(gameName);
+            users.removeIf(user -> user.equals("admin"));
+            if (users.size() >= GameState.MAX_PLAYERS && !users.contains(username)) {
+                System.err.println("Game '" + gameName + "' already has " + GameState.MAX_PLAYERS
+                        + " players, the most one game can seat.");
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error reading users: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // The strategy of a computer player, or null if the user is a human
+    public static Strategy getBotStrategy(String gameName, String username) throws IOException {
+        String storedHash = GameStores.get().getHashedPassword(gameName, username);
+        if (storedHash == null || !storedHash.startsWith(BOT_PREFIX)) {
+            return null;
+        }
+        return Strategy.fromSpec(storedHash.substring(BOT_PREFIX.length()));
+    }
+    
+    // The caller has checked that the game exists and the admin password
+    public static boolean removeUser(String gameName, String username) {
         try {
-            boolean removed = GameFileManager.removeUser(gameName, username);
+            boolean removed = GameStores.get().removeUser(gameName, username);
             if (removed) {
+                SessionManager.logout(gameName, username);
                 System.out.println("User '" + username + "' removed successfully.");
                 return true;
             } else {
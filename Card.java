@@ -3,55 +3,141 @@
  * Prompt: Create a class named Card that represents a playing card in a standard deck of cards.
  * It should use this format: "rank" + "suit", where rank is a number from 2 to 10 or a letter (A, J, Q, K) and suit is one of the following:
  * "H" for hearts, "D" for diamonds, "C" for clubs, and "S" for spades.
+ *
+ * Cards are flyweights: there is exactly one instance per card, created once in a fixed table
+ * indexed by ordinal (suit * 13 + rank). Lookups never allocate.
  */
 public class Card {
-    private final String rank;
-    private final String suit;
-    
     public static final String HEARTS = "H";
     public static final String DIAMONDS = "D";
     public static final String CLUBS = "C";
     public static final String SPADES = "S";
-    
+
     public static final String ACE = "A";
     public static final String JACK = "J";
     public static final String QUEEN = "Q";
     public static final String KING = "K";
-    
-    public Card(String rank, String suit) {
-        this.rank = rank;
-        this.suit = suit;
+
+    // Standard ranks for a deck of cards, in ordinal order
+    static final String[] RANKS = {ACE, "2", "3", "4", "5", "6", "7", "8", "9", "10", JACK, QUEEN, KING};
+
+    // Standard suits for a deck of cards, in ordinal order
+    static final String[] SUITS = {HEARTS, DIAMONDS, CLUBS, SPADES};
+
+    public static final int RANK_COUNT = RANKS.length;
+    public static final int SUIT_COUNT = SUITS.length;
+    public static final int CARD_COUNT = RANK_COUNT * SUIT_COUNT;
+
+    private static final Card[] CARDS = new Card[CARD_COUNT];
+
+    static {
+        for (int suit = 0; suit < SUIT_COUNT; suit++) {
+            for (int rank = 0; rank < RANK_COUNT; rank++) {
+                int ordinal = suit * RANK_COUNT + rank;
+                CARDS[ordinal] = new Card(ordinal, rank, suit);
+            }
+        }
+    }
+
+    private final int ordinal;
+    private final int rankIndex;
+    private final int suitIndex;
+    private final String rank;
+    private final String suit;
+    private final String code;
+    private final String displayName;
+    private final int pointValue;
+
+    private Card(int ordinal, int rankIndex, int suitIndex) {
+        this.ordinal = ordinal;
+        this.rankIndex = rankIndex;
+        this.suitIndex = suitIndex;
+        this.rank = RANKS[rankIndex];
+        this.suit = SUITS[suitIndex];
+        this.code = rank + suit;
+        this.displayName = rankName(rank) + " of " + suitName(suit);
+        this.pointValue = pointValue(rank);
     }
-    
+
+    public static Card of(int ordinal) {
+        return CARDS[ordinal];
+    }
+
     public String getRank() {
         return rank;
     }
-    
+
     public String getSuit() {
         return suit;
     }
-    
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public int getRankIndex() {
+        return rankIndex;
+    }
+
+    public int getSuitIndex() {
+        return suitIndex;
+    }
+
     public String getCode() {
-        return rank + suit;
+        return code;
     }
-    
+
     public static Card fromCode(String code) {
         if (code.length() < 2 || code.length() > 3) {
             throw new IllegalArgumentException("Card code must be 2 or 3 characters");
         }
-        
-        String rank;
-        String suit;
-        
-        if (code.length() == 3 && code.startsWith("10")) {
-            rank = "10";
-            suit = code.substring(2, 3);
+
+        int ordinal = ordinalOf(code);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Unknown card code: " + code);
+        }
+        return CARDS[ordinal];
+    }
+
+    // Returns the ordinal of a card code, or -1 if the code is not a valid card
+    public static int ordinalOf(String code) {
+        int length = code.length();
+        int rankIndex;
+
+        if (length == 3) {
+            rankIndex = code.charAt(0) == '1' && code.charAt(1) == '0' ? 9 : -1;
+        } else if (length == 2) {
+            rankIndex = rankIndexOf(code.charAt(0));
         } else {
-            rank = code.substring(0, 1);
-            suit = code.substring(1, 2);
+            return -1;
+        }
+
+        int suitIndex = suitIndexOf(code.charAt(length - 1));
+        if (rankIndex < 0 || suitIndex < 0) {
+            return -1;
+        }
+        return suitIndex * RANK_COUNT + rankIndex;
+    }
+
+    private static int rankIndexOf(char c) {
+        switch (c) {
+            case 'A': return 0;
+            case 'J': return 10;
+            case 'Q': return 11;
+            case 'K': return 12;
+            default:
+                return c >= '2' && c <= '9' ? c - '1' : -1;
+        }
+    }
+
+    private static int suitIndexOf(char c) {
+        switch (c) {
+            case 'H': return 0;
+            case 'D': return 1;
+            case 'C': return 2;
+            case 'S': return 3;
+            default: return -1;
         }
-        
-        return new Card(rank, suit);
     }
 
     /*
@@ -61,6 +147,10 @@ public class Card {
      * - A is worth 1 point
      */
     public int getPointValue() {
+        return pointValue;
+    }
+
+    private static int pointValue(String rank) {
         switch (rank) {
             case "8":
                 return 50;
@@ -72,47 +162,43 @@ public class Card {
             case ACE:
                 return 1;
             default:
-                try {
-                    return Integer.parseInt(rank);
-                } catch (NumberFormatException e) {
-                    return 0;
-                }
+                return Integer.parseInt(rank);
         }
     }
-    
-    @Override
-    public String toString() {
-        String rankName;
+
+    private static String rankName(String rank) {
         switch (rank) {
-            case ACE: rankName = "Ace"; break;
-            case JACK: rankName = "Jack"; break;
-            case QUEEN: rankName = "Queen"; break;
-            case KING: rankName = "King"; break;
-            default: rankName = rank;
+            case ACE: return "Ace";
+            case JACK: return "Jack";
+            case QUEEN: return "Queen";
+            case KING: return "King";
+            default: return rank;
         }
-        
-        String suitName;
+    }
+
+    private static String suitName(String suit) {
         switch (suit) {
-            case HEARTS: suitName = "Hearts"; break;
-            case DIAMONDS: suitName = "Diamonds"; break;
-            case CLUBS: suitName = "Clubs"; break;
-            case SPADES: suitName = "Spades"; break;
-            default: suitName = suit;
+            case HEARTS: return "Hearts";
+            case DIAMONDS: return "Diamonds";
+            case CLUBS: return "Clubs";
+            default: return "Spades";
         }
-        
-        return rankName + " of " + suitName;
     }
-    
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
-        Card other = (Card) obj;
-        return rank.equals(other.rank) && suit.equals(other.suit);
+        return ordinal == ((Card) obj).ordinal;
     }
-    
+
     @Override
     public int hashCode() {
-        return 31 * rank.hashCode() + suit.hashCode();
+        return ordinal;
     }
 }
\ No newline at end of file
@@ -1,11 +1,5 @@
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -18,9 +12,39 @@ public class CommandHandler {
     private String username = null;
     private String card = null;
     private String viewUsername = null;
+    private String seed = null;
+    private String strategy = "greedy";
+    private String token = null;
+    private String ttl = null;
+    // True while the loaded game is still in the file store's per-player text layout (see --migrate)
+    private boolean textLayout = false;
+    // Set once the command has persisted its changes, so a cached copy is known to match disk
+    private boolean saved = false;
+    // Set once this command has reported the end of the game, so it is only reported once
+    private boolean gameOverReported = false;
+    // Held from loading the game until the command finishes (see GameLock)
+    private GameLock lock = null;
+    private long loadedVersion = 0;
+    // Set when a save found that another command had saved first; the command is run again
+    private boolean stale = false;
+    // Remembered so a retried command does not ask for the password again
+    private boolean authenticated = false;
+    // Hash of a password being set (init, add-user), asked for along with the admin password
+    private String newPasswordHash = null;
+    private long sessionMinutes = 0;
+    // Stats of a command authenticated on one thread and executed on another
+    private CommandStats.Sample pendingStats = null;
+    // When set, snapshot games are handed to it instead of being written (see ScriptRunner)
+    private GroupCommit groupCommit = null;
+    // Whether a token stored by --login may stand in for a missing --token (see useStoredSessions)
+    private boolean storedSessions = false;
+    private final GameStore store;
+
+    private static final int MAX_ATTEMPTS = 3;
     
     public CommandHandler(String[] args) {
         this.args = args;
+        this.store = GameStores.get();
         parseArguments();
     }
     
@@ -36,6 +60,17 @@ public class CommandHandler {
                         username = args[++i];
                     }
                     break;
+                case "--add-bot":
+                    command = "add-bot";
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        username = args[++i];
+                    }
+                    break;
+                case "--strategy":
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        strategy = args[++i];
+                    }
+                    break;
                 case "--remove-user":
                     command = "remove-user";
                     if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
@@ -66,6 +101,28 @@ public class CommandHandler {
                 case "--pass":
                     command = "pass";
                     break;
+                case "--migrate":
+                    command = "migrate";
+                    break;
+                case "--stats":
+                    command = "stats";
+                    break;
+                case "--login":
+                    command = "login";
+                    break;
+                case "--logout":
+                    command = "logout";
+                    break;
+                case "--token":
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        token = args[++i];
+                    }
+                    break;
+                case "--ttl":
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        ttl = args[++i];
+                    }
+                    break;
                 case "--game":
                     if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
                         gameName = args[++i];
@@ -76,6 +133,11 @@ public class CommandHandler {
                         username = args[++i];
                     }
                     break;
+                case "--seed":
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        seed = args[++i];
+                    }
+                    break;
             }
         }
     }
@@ -91,6 +153,162 @@ public class CommandHandler {
             return;
         }
         
+        if (pendingStats != null) {
+            CommandStats.attach(pendingStats);
+            pendingStats = null;
+        } else {
+            CommandStats.begin();
+        }
+        GameEvents.setPlayer(username);
+        GameEvents.CommandEvent event = GameEvents.beginCommand();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                stale = false;
+                dispatch();
+                if (!stale) {
+                    break;
+                }
+                unlockGame();
+                GameCache.invalidate(gameName);
+                if (attempt == MAX_ATTEMPTS) {
+                    System.err.println("Game '" + gameName + "' kept changing while saving; nothing was saved. Try again.");
+                    break;
+                }
+            }
+        } finally {
+            unlockGame();
+            GameEvents.commitCommand(event, gameName, command, saved);
+            GameEvents.setPlayer(null);
+            // Only commands that saved the game go to its stats log; rejected ones cost no write
+            CommandStats.finish(gameName, command.equals("stats") ? null : command, saved);
+        }
+    }
+
+    void setGroupCommit(GroupCommit groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    /*
+     * Let the token --login stored for the user stand in for the password when no --token is
+     * given. Only the local command line does this: it runs as the shell user who logged in and
+     * could read the token file anyway. The daemon and the HTTP server must never do it, or naming
+     * a logged-in user would be enough to act as them.
+     */
+    void useStoredSessions() {
+        this.storedSessions = true;
+    }
+
+    /*
+     * For a command line about to be handed to the daemon: the arguments with the stored token of
+     * the user the command runs as added, if there is one and it is still good. This is the
+     * client's own lookup, so the daemon never has to make it.
+     */
+    static String[] withStoredSession(String[] args) {
+        if (Arrays.asList(args).contains("--token")) {
+            return args;
+        }
+        CommandHandler handler = new CommandHandler(args);
+        String user = handler.sessionUser();
+        if (user == null || !handler.store.gameExists(handler.gameName)) {
+            return args;
+        }
+        try {
+            String stored = SessionManager.findToken(handler.gameName, user);
+            if (stored == null || !AuthenticationManager.authenticateSession(handler.gameName, user, stored)) {
+                return args;
+            }
+            String[] withToken = Arrays.copyOf(args, args.length + 2);
+            withToken[args.length] = "--token";
+            withToken[args.length + 1] = stored;
+            return withToken;
+        } catch (IOException e) {
+            return args;
+        }
+    }
+
+    // The user a session would have to belong to for this command, or null if it takes none
+    private String sessionUser() {
+        if (command == null || gameName == null) {
+            return null;
+        }
+        switch (command) {
+            case "start":
+            case "migrate":
+            case "stats":
+                return "admin";
+            case "play":
+            case "draw":
+            case "pass":
+            case "cards":
+            case "order":
+            case "logout":
+                return username;
+            default:
+                return null;
+        }
+    }
+
+    String getGameName() {
+        return gameName;
+    }
+
+    /*
+     * Ask for every password the command needs (or check the session) now rather than when the
+     * command gets to it, for callers that run the rest of the command later on another thread
+     * (see GameService). Passwords being set are hashed here too.
+     * Returns false, having reported why, if the command should not run.
+     */
+    public boolean preauthenticate() {
+        if (command == null || gameName == null) {
+            return true;
+        }
+
+        CommandStats.begin();
+        try {
+            switch (command) {
+                case "play":
+                case "draw":
+                case "pass":
+                case "cards":
+                case "order":
+                case "logout":
+                    if (username != null && !authenticateUser()) {
+                        System.err.println("Invalid user credentials.");
+                        return false;
+                    }
+                    return true;
+                case "start":
+                case "migrate":
+                case "stats":
+                    if (!authenticateAdmin()) {
+                        System.err.println("Invalid admin password.");
+                        return false;
+                    }
+                    return true;
+                // A missing name is reported when the command runs
+                case "init":
+                    return prepareInit();
+                case "add-user":
+                    return username == null || prepareAddUser();
+                case "add-bot":
+                    return username == null || prepareAddBot();
+                case "remove-user":
+                    return username == null || prepareRemoveUser();
+                case "login":
+                    return username == null || prepareLogin();
+                default:
+                    return true;
+            }
+        } finally {
+            pendingStats = CommandStats.detach();
+        }
+    }
+
+    private boolean isReadOnly() {
+        return command != null && (command.equals("cards") || command.equals("order"));
+    }
+
+    private void dispatch() {
         switch (command) {
             case "init":
                 initializeGame();
@@ -98,6 +316,9 @@ public class CommandHandler {
             case "add-user":
                 addUser();
                 break;
+            case "add-bot":
+                addBot();
+                break;
             case "remove-user":
                 removeUser();
                 break;
@@ -119,13 +340,27 @@ public class CommandHandler {
             case "pass":
                 passTurn();
                 break;
+            case "migrate":
+                migrateGame();
+                break;
+            case "stats":
+                showStats();
+                break;
+            case "login":
+                login();
+                break;
+            case "logout":
+                logout();
+                break;
             default:
                 System.err.println("Unknown command: " + command);
         }
     }
     
     private void initializeGame() {
-        AuthenticationManager.initializeGame(gameName);
+        if (prepareInit()) {
+            AuthenticationManager.initializeGame(gameName, newPasswordHash);
+        }
     }
     
     private void addUser() {
@@ -134,7 +369,20 @@ public class CommandHandler {
             return;
         }
         
-        AuthenticationManager.addUser(gameName, username);
+        if (prepareAddUser()) {
+            AuthenticationManager.addUser(gameName, username, newPasswordHash);
+        }
+    }
+    
+    private void addBot() {
+        if (username == null) {
+            System.err.println("Bot name not specified. Use --add-bot <name> [--strategy <strategy>]");
+            return;
+        }
+
+        if (prepareAddBot()) {
+            AuthenticationManager.addBot(gameName, username, strategy);
+        }
     }
     
     private void removeUser() {
@@ -143,21 +391,75 @@ public class CommandHandler {
             return;
         }
         
-        AuthenticationManager.removeUser(gameName, username);
+        if (prepareRemoveUser()) {
+            AuthenticationManager.removeUser(gameName, username);
+        }
+    }
+
+    /*
+     * Checks and password prompts of the commands that change who plays. Each runs from
+     * preauthenticate and again from the command itself: the checks are repeated, as the game
+     * may have changed in between, but the passwords are only asked for once.
+     */
+    private boolean prepareInit() {
+        if (!AuthenticationManager.canInitializeGame(gameName)) {
+            return false;
+        }
+        newPasswordHash("Set an admin password for game '" + gameName + "':");
+        return true;
+    }
+
+    private boolean prepareAddUser() {
+        if (!AuthenticationManager.canAddUser(gameName, username) || !confirmAdmin()) {
+            return false;
+        }
+        newPasswordHash("Set a password for user '" + username + "':");
+        return true;
+    }
+
+    private boolean prepareAddBot() {
+        return AuthenticationManager.canAddBot(gameName, username, strategy) && confirmAdmin();
+    }
+
+    private boolean prepareRemoveUser() {
+        if (!store.gameExists(gameName)) {
+            System.err.println("Game '" + gameName + "' does not exist.");
+            return false;
+        }
+        return confirmAdmin();
+    }
+
+    // Adding and removing players always takes the admin password, never a session
+    private boolean confirmAdmin() {
+        if (!authenticated) {
+            System.out.println("Enter admin password for game '" + gameName + "':");
+            String adminPassword = AuthenticationManager.readPassword();
+            if (!AuthenticationManager.authenticateAdmin(gameName, adminPassword)) {
+                System.err.println("Invalid admin password.");
+                return false;
+            }
+            authenticated = true;
+        }
+        return true;
+    }
+
+    private void newPasswordHash(String prompt) {
+        if (newPasswordHash == null) {
+            System.out.println(prompt);
+            newPasswordHash = AuthenticationManager.hashPassword(AuthenticationManager.readPassword());
+        }
     }
     
     private void startGame() {
 
-        System.out.println("Enter admin password for game '" + gameName + "':");
-        String adminPassword = AuthenticationManager.readPassword();
-        if (!AuthenticationManager.authenticateAdmin(gameName, adminPassword)) {
+        if (!authenticateAdmin()) {
             System.err.println("Invalid admin password.");
             return;
         }
         
         try {
 
-            List<String> users = GameFileManager.getUsers(gameName);
+            List<String> users = store.getUsers(gameName);
 
             users.removeIf(user -> user.equals("admin")); //
             
@@ -165,16 +467,36 @@ public class CommandHandler {
                 System.err.println("At least 2 players are required to start a game.");
                 return;
             }
+            if (users.size() > GameState.MAX_PLAYERS) {
+                System.err.println("At most " + GameState.MAX_PLAYERS + " players can play one game.");
+                return;
+            }
+            if (users.size() * Rules.INITIAL_CARDS_PER_PLAYER >= Card.CARD_COUNT) {
+                System.err.println("Not enough cards to deal " + Rules.INITIAL_CARDS_PER_PLAYER + " to "
+                        + users.size() + " players.");
+                return;
+            }
 
             Game game = new Game(gameName, users, new Deck());
-            game.initializeGame();
+            if (seed != null) {
+                try {
+                    game.initializeGame(Long.parseLong(seed));
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid seed: " + seed);
+                    return;
+                }
+            } else {
+                game.initializeGame();
+            }
             
 
-            saveGameState(game);
+            startGameState(game);
             
             System.out.println("Game started successfully with players: " + String.join(", ", users)); //
+            runBots(game);
             System.out.println("Current turn: " + game.getCurrentPlayer().getName()); //
             System.out.println("Top card: " + game.getTopDiscard().getCode()); //
+            System.out.println("Shuffle seed: " + game.getSeed());
             
         } catch (IOException e) {
             System.err.println("Error starting game: " + e.getMessage());
@@ -187,20 +509,17 @@ public class CommandHandler {
             return;
         }
         
-        System.out.println("Enter password for user '" + username + "':");
-        String password = AuthenticationManager.readPassword();
-        if (!AuthenticationManager.authenticateUser(gameName, username, password)) {
+        if (!authenticateUser()) {
             System.err.println("Invalid user credentials.");
             return;
         }
         
         try {
-
-            Game game = loadGameState();
+            GameView game = openView();
             if (game == null) {
                 return;
             }
-            
+
             List<String> turnOrder = game.getTurnOrder();
             
             System.out.println("Turn order:");
@@ -224,9 +543,7 @@ public class CommandHandler {
             return;
         }
         
-        System.out.println("Enter password for user '" + username + "':");
-        String password = AuthenticationManager.readPassword();
-        if (!AuthenticationManager.authenticateUser(gameName, username, password)) {
+        if (!authenticateUser()) {
             System.err.println("Invalid user credentials.");
             return;
         }
@@ -242,15 +559,19 @@ public class CommandHandler {
                 return;
             }
 
+            int playerIndex = game.getCurrentPlayerIndex();
+            long start = System.nanoTime();
             boolean success = game.playCard(card);
+            CommandStats.record(CommandStats.RULES, start);
             if (!success) {
                 System.err.println("Cannot play card " + card + ". Invalid move or card not in hand.");
                 return;
             }
 
-            saveGameState(game);
+            saveMove(game, MoveJournal.PLAY, playerIndex, Card.fromCode(card));
             
             System.out.println("Card " + card + " played successfully.");
+            runBots(game);
             
             if (game.isGameOver()) {
                 Player winner = game.getWinner();
@@ -259,6 +580,8 @@ public class CommandHandler {
                 System.out.println("Next player: " + game.getCurrentPlayer().getName());
             }
             
+        } catch (StaleStateException e) {
+            stale = true;
         } catch (IOException e) {
             System.err.println("Error playing card: " + e.getMessage());
         }
@@ -275,15 +598,13 @@ public class CommandHandler {
             return;
         }
         
-        System.out.println("Enter password for user '" + username + "':");
-        String password = AuthenticationManager.readPassword();
-        if (!AuthenticationManager.authenticateUser(gameName, username, password)) {
+        if (!authenticateUser()) {
             System.err.println("Invalid user credentials.");
             return;
         }
         
         try {
-            Game game = loadGameState();
+            GameView game = openView();
             if (game == null) {
                 return;
             }
@@ -293,18 +614,19 @@ public class CommandHandler {
                 return;
             }
             
-            Player player = game.getPlayerByName(viewUsername);
-            if (player == null) {
+            if (!game.hasPlayer(viewUsername)) {
                 System.err.println("Player '" + viewUsername + "' not found.");
                 return;
             }
 
-            List<Card> hand = player.getHand();
+            long handMask = game.getHandMask(viewUsername);
+            List<Card> hand = Hand.toCards(handMask);
             Card topDiscard = game.getTopDiscard();
+            long validMoves = handMask & Rules.legalResponses(topDiscard);
             
             System.out.println(viewUsername + "'s cards (" + hand.size() + "):");
             for (Card card : hand) {
-                String validMove = Rules.isValidPlay(card, topDiscard) ? " (Valid Move)" : "";
+                String validMove = Hand.contains(validMoves, card) ? " (Valid Move)" : "";
                 System.out.println("- " + card.getCode() + " (" + card + ")" + validMove);
             }
             
@@ -321,9 +643,7 @@ public class CommandHandler {
             return;
         }
         
-        System.out.println("Enter password for user '" + username + "':");
-        String password = AuthenticationManager.readPassword();
-        if (!AuthenticationManager.authenticateUser(gameName, username, password)) {
+        if (!authenticateUser()) {
             System.err.println("Invalid user credentials.");
             return;
         }
@@ -344,27 +664,33 @@ public class CommandHandler {
                 return;
             }
             
+            int playerIndex = game.getCurrentPlayerIndex();
+            long start = System.nanoTime();
             Card drawnCard = game.drawCard();
+            CommandStats.record(CommandStats.RULES, start);
             if (drawnCard == null) {
                 System.err.println("No cards left in the draw pile.");
                 return;
             }
             
-            saveGameState(game);
+            saveMove(game, MoveJournal.DRAW, playerIndex, drawnCard);
             
             System.out.println("You drew: " + drawnCard.getCode() + " (" + drawnCard + ")");
             
             List<Card> hand = game.getCurrentPlayer().getHand();
             Card topDiscard = game.getTopDiscard();
+            long validMoves = game.getCurrentPlayer().getHandMask() & Rules.legalResponses(topDiscard);
             
             System.out.println("\nYour cards (" + hand.size() + "):");
             for (Card card : hand) {
-                String validMove = Rules.isValidPlay(card, topDiscard) ? " (Valid Move)" : "";
+                String validMove = Hand.contains(validMoves, card) ? " (Valid Move)" : "";
                 System.out.println("- " + card.getCode() + " (" + card + ")" + validMove);
             }
             
             System.out.println("\nTop card on discard pile: " + topDiscard.getCode() + " (" + topDiscard + ")");
             
+        } catch (StaleStateException e) {
+            stale = true;
         } catch (IOException e) {
             System.err.println("Error drawing card: " + e.getMessage());
         }
@@ -376,9 +702,7 @@ public class CommandHandler {
             return;
         }
         
-        System.out.println("Enter password for user '" + username + "':");
-        String password = AuthenticationManager.readPassword();
-        if (!AuthenticationManager.authenticateUser(gameName, username, password)) {
+        if (!authenticateUser()) {
             System.err.println("Invalid user credentials.");
             return;
         }
@@ -395,22 +719,29 @@ public class CommandHandler {
                 return;
             }
 
+            int playerIndex = game.getCurrentPlayerIndex();
+            long start = System.nanoTime();
             boolean success = game.passTurn();
+            CommandStats.record(CommandStats.RULES, start);
             if (!success) {
                 System.err.println("Cannot pass. You must draw a card first or play a valid card if possible.");
                 return;
             }
-                saveGameState(game);
+            saveMove(game, MoveJournal.PASS, playerIndex, null);
             
             System.out.println("Turn passed.");
+            runBots(game);
             
             if (game.checkGameOver()) {
+                reportGameOver(game);
                 Player winner = game.getWinner();
                 System.out.println("Game over! Winner: " + winner.getName());
             } else {
                 System.out.println("Next player: " + game.getCurrentPlayer().getName());
             }
             
+        } catch (StaleStateException e) {
+            stale = true;
         } catch (IOException e) {
             System.err.println("Error passing turn: " + e.getMessage());
         }
@@ -418,108 +749,353 @@ public class CommandHandler {
     
 
 
-    private Game loadGameState() throws IOException {
+    private void migrateGame() {
+        if (!authenticateAdmin()) {
+            System.err.println("Invalid admin password.");
+            return;
+        }
 
-        if (!GameFileManager.gameExists(gameName)) {
+        if (!(store instanceof FileGameStore)) {
+            System.err.println("Only games in the file store have a text layout to migrate.");
+            return;
+        }
+        FileGameStore files = (FileGameStore) store;
+        if (!files.isTextLayout(gameName)) {
+            System.err.println("Game '" + gameName + "' is already stored as a snapshot.");
+            return;
+        }
+
+        try {
+            Game game = loadGameState();
+            if (game == null) {
+                return;
+            }
+
+            lock.checkVersion(loadedVersion);
+            files.migrate(game);
+            loadedVersion = lock.bumpVersion();
+            saved = true;
+            System.out.println("Game '" + gameName + "' migrated to a single snapshot file.");
+
+        } catch (IOException e) {
+            System.err.println("Error migrating game: " + e.getMessage());
+        }
+    }
+
+    private void showStats() {
+        if (!authenticateAdmin()) {
+            System.err.println("Invalid admin password.");
+            return;
+        }
+
+        try {
+            CommandStats.printGame(gameName, System.out);
+        } catch (IOException e) {
+            System.err.println("Error reading stats: " + e.getMessage());
+        }
+    }
+
+    private void login() {
+        if (username == null) {
+            System.err.println("Username not specified. Use --user <username>");
+            return;
+        }
+        if (!prepareLogin()) {
+            return;
+        }
+
+        try {
+            String issued = SessionManager.login(gameName, username, sessionMinutes);
+            System.out.println("Logged in as " + username + " for " + sessionMinutes + " minutes.");
+            System.out.println("Session token: " + issued);
+        } catch (IOException e) {
+            System.err.println("Error logging in: " + e.getMessage());
+        }
+    }
+
+    private boolean prepareLogin() {
+        long minutes = SessionManager.DEFAULT_TTL_MINUTES;
+        if (ttl != null) {
+            try {
+                minutes = Long.parseLong(ttl);
+            } catch (NumberFormatException e) {
+                minutes = 0;
+            }
+            if (minutes <= 0) {
+                System.err.println("Invalid session length: " + ttl + " (minutes)");
+                return false;
+            }
+        }
+        sessionMinutes = minutes;
+
+        // Logging in always asks for the password; it is what the token stands in for afterwards
+        if (!authenticated) {
+            System.out.println("Enter password for user '" + username + "':");
+            String password = AuthenticationManager.readPassword();
+            if (!AuthenticationManager.authenticateUser(gameName, username, password)) {
+                System.err.println("Invalid user credentials.");
+                return false;
+            }
+            authenticated = true;
+        }
+        return true;
+    }
+
+    private void logout() {
+        if (username == null) {
+            System.err.println("Username not specified. Use --user <username>");
+            return;
+        }
+
+        if (!authenticateUser()) {
+            System.err.println("Invalid user credentials.");
+            return;
+        }
+
+        try {
+            SessionManager.logout(gameName, username);
+            System.out.println("Logged out " + username + ".");
+        } catch (IOException e) {
+            System.err.println("Error logging out: " + e.getMessage());
+        }
+    }
+
+    // A valid session token from --login stands in for the password; otherwise ask for it
+    private boolean authenticateUser() {
+        if (!authenticated && !hasSession(username)) {
+            System.out.println("Enter password for user '" + username + "':");
+            String password = AuthenticationManager.readPassword();
+            if (!AuthenticationManager.authenticateUser(gameName, username, password)) {
+                return false;
+            }
+        }
+        authenticated = true;
+        return true;
+    }
+
+    private boolean authenticateAdmin() {
+        if (!authenticated && !hasSession("admin")) {
+            System.out.println("Enter admin password for game '" + gameName + "':");
+            String adminPassword = AuthenticationManager.readPassword();
+            if (!AuthenticationManager.authenticateAdmin(gameName, adminPassword)) {
+                return false;
+            }
+        }
+        authenticated = true;
+        return true;
+    }
+
+    private boolean hasSession(String user) {
+        if (!store.gameExists(gameName)) {
+            return false;
+        }
+
+        String session = token;
+        if (session == null && storedSessions) {
+            try {
+                session = SessionManager.findToken(gameName, user);
+            } catch (IOException e) {
+                System.err.println("Error reading session token: " + e.getMessage());
+            }
+        }
+        if (session == null) {
+            return false;
+        }
+
+        if (AuthenticationManager.authenticateSession(gameName, user, session)) {
+            return true;
+        }
+        if (token != null) {
+            System.err.println("Session token is invalid, expired or revoked.");
+        }
+        return false;
+    }
+
+    Game loadGameState() throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (store.gameExists(gameName)) {
+                lockGame();
+            }
+            return loadGame();
+        } finally {
+            CommandStats.record(CommandStats.LOAD, start);
+        }
+    }
+
+    // Take the game's lock, shared for commands that only look, and note the version on disk
+    private void lockGame() throws IOException {
+        if (lock == null) {
+            lock = isReadOnly() ? GameLock.shared(gameName) : GameLock.exclusive(gameName);
+            loadedVersion = lock.readVersion();
+        }
+    }
+
+    // A lazily loaded view for commands that only read the game, or null if there is no game to view
+    private GameView openView() throws IOException {
+        if (!store.gameExists(gameName)) {
             System.err.println("Game '" + gameName + "' does not exist.");
             return null;
         }
-        
+        lockGame();
 
-        List<String> users = GameFileManager.getUsers(gameName);
-        
-        users.removeIf(user -> user.equals("admin"));
-        
-        if (users.isEmpty()) {
+        // Games waiting in a group commit are only in memory, whatever the files say
+        boolean textLayout = isTextLayout() && (groupCommit == null || groupCommit.get(gameName, loadedVersion) == null);
+        GameView view = new GameView(gameName, textLayout, this::loadGameState);
+        if (view.getPlayers().isEmpty()) {
             System.err.println("No players found for the game.");
             return null;
         }
-        
-        Game game = new Game(gameName, users, new Deck(new ArrayList<>()));
-        
-        // Load player hands and states
-        for (String user : users) {
-            List<String> cardCodes = GameFileManager.loadPlayerHand(gameName, user);
-            Player player = game.getPlayerByName(user);
-            
-            if (player != null) {
-                if (!cardCodes.isEmpty()) {
-                    for (String code : cardCodes) {
-                        player.addCard(Card.fromCode(code));
-                    }
-                }
+        return view;
+    }
 
-                boolean hasDrawn = GameFileManager.loadPlayerDrawnState(gameName, user);
-                player.setHasDrawnThisTurn(hasDrawn);
+    // Load the game for a caller that only reads it, releasing the lock straight away
+    Game readGame() throws IOException {
+        try {
+            return loadGameState();
+        } finally {
+            unlockGame();
+        }
+    }
+
+    private void unlockGame() {
+        if (lock != null) {
+            try {
+                lock.close();
+            } catch (IOException e) {
+                System.err.println("Error releasing game lock: " + e.getMessage());
             }
+            lock = null;
         }
-        
-        // Load draw pile
-        List<String> drawCodes = GameFileManager.loadDrawPile(gameName);
-        Deck drawPile = Deck.fromCardCodes(drawCodes);
-        for (Card card : drawPile.getCards()) {
-            game.getDrawPile().addCard(card);
+    }
+
+    private Game loadGame() throws IOException {
+
+        if (!store.gameExists(gameName)) {
+            System.err.println("Game '" + gameName + "' does not exist.");
+            return null;
         }
-        
-        // Load discard pile
-        List<String> discardCodes = GameFileManager.loadDiscardPile(gameName);
-        Deck discardPile = Deck.fromCardCodes(discardCodes);
-        game.getDiscardPile().getCards().clear();
-        for (Card card : discardPile.getCards()) {
-            game.getDiscardPile().addCard(card);
+
+        Game pending = groupCommit != null ? groupCommit.get(gameName, loadedVersion) : null;
+        if (pending != null) {
+            textLayout = false;
+            return pending;
+        }
+
+        textLayout = isTextLayout();
+        Game game = store.loadGame(gameName);
+        if (game == null) {
+            System.err.println("Game '" + gameName + "' has not been started.");
         }
-        
-        findCurrentPlayer(game);
-        
         return game;
     }
+
+    private boolean isTextLayout() {
+        return store instanceof FileGameStore && ((FileGameStore) store).isTextLayout(gameName);
+    }
     
-    /*
-     * Prompt: Find the current player based on the turns file. This method reads the turns file and sets the current player index in the game object.
-     */
-    private void findCurrentPlayer(Game game) throws IOException {
-        String turnsFilePath = gameName + File.separator + "turns.txt";
-        File turnsFile = new File(turnsFilePath);
-        
-        if (turnsFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(turnsFilePath))) {
-                String currentPlayerName = reader.readLine();
-                if (currentPlayerName != null && !currentPlayerName.isEmpty()) {
-
-                    List<Player> players = game.getPlayers();
-                    for (int i = 0; i < players.size(); i++) {
-                        if (players.get(i).getName().equals(currentPlayerName)) {
-
-                            try {
-                                Field indexField = Game.class.getDeclaredField("currentPlayerIndex");
-                                indexField.setAccessible(true);
-                                indexField.set(game, i);
-                            } catch (NoSuchFieldException | IllegalAccessException e) {
-                                System.err.println("Error setting current player: " + e.getMessage());
-                            }
-                            break;
-                        }
-                    }
+    // Let computer players move while it is their turn, saving each move like a human one
+    private void runBots(Game game) throws IOException {
+        while (!game.isGameOver()) {
+            String name = game.getCurrentPlayer().getName();
+            Strategy bot = AuthenticationManager.getBotStrategy(gameName, name);
+            if (bot == null) {
+                return;
+            }
+
+            int playerIndex = game.getCurrentPlayerIndex();
+            long start = System.nanoTime();
+            Move move = bot.chooseMove(PlayerView.of(game));
+            CommandStats.record(CommandStats.BOTS, start);
+            Card movedCard = move.getCard();
+
+            start = System.nanoTime();
+            boolean applied;
+            if (move.getType() == Move.DRAW) {
+                movedCard = game.drawCard();
+                applied = movedCard != null;
+            } else {
+                applied = game.makeMove(move);
+            }
+            CommandStats.record(CommandStats.RULES, start);
+
+            if (move.getType() == Move.DRAW) {
+                if (!applied) {
+                    System.err.println("No cards left in the draw pile.");
+                    return;
                 }
-            } catch (IOException e) {
-                System.err.println("Error reading current player: " + e.getMessage());
+                System.out.println("Bot " + name + " drew a card.");
+            } else if (!applied) {
+                System.err.println("Bot " + name + " chose an illegal move: " + move);
+                return;
+            } else if (move.getType() == Move.PLAY) {
+                System.out.println("Bot " + name + " played " + movedCard.getCode() + ".");
+            } else {
+                System.out.println("Bot " + name + " passed.");
             }
+
+            saveMove(game, move.getType(), playerIndex, movedCard);
         }
     }
-    
-    private void saveGameState(Game game) throws IOException {
-        for (Player player : game.getPlayers()) {
-            GameFileManager.savePlayerHand(gameName, player.getName(), player.getHandAsCodes());
-            GameFileManager.savePlayerDrawnState(gameName, player.getName(), player.hasDrawnThisTurn());
+
+    private void reportGameOver(Game game) {
+        if (!gameOverReported) {
+            gameOverReported = true;
+            GameEvents.gameOver(game);
         }
-        
-        GameFileManager.saveDrawPile(gameName, game.getDrawPile().toCardCodes());
-        GameFileManager.saveDiscardPile(gameName, game.getDiscardPile().toCardCodes());
+    }
 
-        String turnsFilePath = gameName + File.separator + "turns.txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(turnsFilePath))) {
-            writer.write(game.getCurrentPlayer().getName());
+    void saveGameState(Game game) throws IOException {
+        long start = System.nanoTime();
+        try {
+            lockGame();
+            if (groupCommit != null && !textLayout) {
+                groupCommit.defer(game, loadedVersion);
+                saved = true;
+                return;
+            }
+            lock.checkVersion(loadedVersion);
+            store.saveGame(game);
+            loadedVersion = lock.bumpVersion();
+            saved = true;
+        } finally {
+            CommandStats.record(CommandStats.SAVE, start);
         }
     }
+
+    // A new deal is written straight away, also in a group commit, replacing any unsaved game
+    private void startGameState(Game game) throws IOException {
+        long start = System.nanoTime();
+        try {
+            lockGame();
+            lock.checkVersion(loadedVersion);
+            store.startGame(game);
+            loadedVersion = lock.bumpVersion();
+            if (groupCommit != null) {
+                groupCommit.discard(gameName);
+            }
+            saved = true;
+        } finally {
+            CommandStats.record(CommandStats.SAVE, start);
+        }
+    }
+
+    // Persist a single move; the store decides how (see FileGameStore.saveMove)
+    private void saveMove(Game game, int type, int playerIndex, Card movedCard) throws IOException {
+        if (game.isGameOver()) {
+            reportGameOver(game);
+        }
+        if (groupCommit != null) {
+            saveGameState(game);
+            return;
+        }
+
+        long start = System.nanoTime();
+        lock.checkVersion(loadedVersion);
+        store.saveMove(game, type, playerIndex, movedCard);
+        loadedVersion = lock.bumpVersion();
+        CommandStats.record(CommandStats.SAVE, start);
+        saved = true;
+    }
     
-}
+}
\ No newline at end of file
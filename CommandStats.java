@@ -0,0 +1,443 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * Per-command instrumentation: how long each phase of a command took (auth, load, rule checks,
+ * bot thinking, save) and how many bytes and files it read and wrote.
+ *
+ * A command's figures are gathered on its thread while it runs and, when it finishes, added to
+ * this process's totals. Commands that saved the game are also appended as one fixed-size
+ * record to the game's stats log; others (--cards, --order, and moves that were refused) are
+ * not, so they stay free of writes. --stats folds the log into the game's histogram file (stats.bin) and prints it; the
+ * log is also folded whenever it grows past FOLD_RECORDS. Appends hold the game lock shared and
+ * folds hold it exclusively, so no record is folded twice or lost to a fold. Long-lived modes
+ * publish the process totals over JMX.
+ *
+ * Stats log record (big-endian):
+ *   long  end time, epoch milliseconds
+ *   byte[COMMAND_LENGTH]  command name in UTF-8, zero-padded
+ *   long  nanoseconds per phase, in PHASES order
+ *   int   bytes read, int bytes written, short files touched
+ */
+public final class CommandStats {
+    public static final int TOTAL = 0;
+    public static final int AUTH = 1;
+    public static final int LOAD = 2;
+    public static final int RULES = 3;
+    public static final int BOTS = 4;
+    public static final int SAVE = 5;
+    static final String[] PHASES = {"total", "auth", "load", "rules", "bots", "save"};
+
+    static final String LOG_FILE = "stats.log";
+    static final String STATS_FILE = "stats.bin";
+    private static final int STATS_MAGIC = 0x43453854;
+    private static final int COMMAND_LENGTH = 16;
+    private static final int RECORD_SIZE = 8 + COMMAND_LENGTH + 8 * 6 + 4 + 4 + 2;
+    private static final int FOLD_RECORDS = 4096;
+
+    private static final ThreadLocal<Sample> CURRENT = new ThreadLocal<>();
+    private static final Map<String, Totals> PROCESS = new ConcurrentHashMap<>();
+    private static volatile boolean mbeanRegistered = false;
+
+    private CommandStats() {
+    }
+
+    // What one command has done so far
+    static final class Sample {
+        final long startNanos = System.nanoTime();
+        final long[] phaseNanos = new long[PHASES.length];
+        long bytesRead;
+        long bytesWritten;
+        final List<String> files = new ArrayList<>(8);
+
+        void touch(String path) {
+            if (!files.contains(path)) {
+                files.add(path);
+            }
+        }
+    }
+
+    // Running totals for one command name: a histogram per phase plus I/O counters
+    static class Totals {
+        final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong bytesWritten = new AtomicLong();
+        final AtomicLong files = new AtomicLong();
+
+        Totals() {
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+
+        void add(long[] phaseNanos, long read, long written, long touched) {
+            phases[TOTAL].record(phaseNanos[TOTAL]);
+            for (int i = 1; i < phases.length; i++) {
+                // Phases a command never entered are left out rather than recorded as zero
+                if (phaseNanos[i] > 0) {
+                    phases[i].record(phaseNanos[i]);
+                }
+            }
+            bytesRead.addAndGet(read);
+            bytesWritten.addAndGet(written);
+            files.addAndGet(touched);
+        }
+
+        long commands() {
+            return phases[TOTAL].getCount();
+        }
+    }
+
+    // Start collecting for the command about to run on this thread
+    public static void begin() {
+        CURRENT.set(new Sample());
+    }
+
+    // Take the current command away from this thread, to be carried on with attach() on another
+    static Sample detach() {
+        Sample sample = CURRENT.get();
+        CURRENT.remove();
+        return sample;
+    }
+
+    static void attach(Sample sample) {
+        CURRENT.set(sample);
+    }
+
+    // Add the time since startNanos to a phase of the current command
+    public static void record(int phase, long startNanos) {
+        Sample sample = CURRENT.get();
+        if (sample != null) {
+            sample.phaseNanos[phase] += System.nanoTime() - startNanos;
+        }
+    }
+
+    public static void read(String path, long bytes) {
+        Sample sample = CURRENT.get();
+        if (sample != null) {
+            sample.bytesRead += bytes;
+            sample.touch(path);
+        }
+    }
+
+    public static void written(String path, long bytes) {
+        Sample sample = CURRENT.get();
+        if (sample != null) {
+            sample.bytesWritten += bytes;
+            sample.touch(path);
+        }
+    }
+
+    /*
+     * Close the current command: add it to the process totals and, if it is to be logged and the
+     * game exists in a persistent store, append it to the game's stats log. Stats are never worth failing a
+     * command over, so write errors are only reported.
+     */
+    public static void finish(String gameName, String command, boolean logged) {
+        Sample sample = CURRENT.get();
+        CURRENT.remove();
+        if (sample == null || command == null) {
+            return;
+        }
+        sample.phaseNanos[TOTAL] = System.nanoTime() - sample.startNanos;
+        PROCESS.computeIfAbsent(command, name -> new Totals())
+                .add(sample.phaseNanos, sample.bytesRead, sample.bytesWritten, sample.files.size());
+
+        GameStore store = GameStores.get();
+        if (!logged || gameName == null || !store.isPersistent() || !store.gameExists(gameName)) {
+            return;
+        }
+        try {
+            if (append(gameName, command, sample) >= FOLD_RECORDS) {
+                fold(gameName);
+            }
+        } catch (IOException e) {
+            System.err.println("Error recording command stats: " + e.getMessage());
+        }
+    }
+
+    // Appends one record with a single write and returns how many records the log now holds
+    private static long append(String gameName, String command, Sample sample) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putLong(System.currentTimeMillis());
+        byte[] name = command.getBytes(StandardCharsets.UTF_8);
+        record.put(name, 0, Math.min(name.length, COMMAND_LENGTH));
+        record.position(8 + COMMAND_LENGTH);
+        for (long nanos : sample.phaseNanos) {
+            record.putLong(nanos);
+        }
+        record.putInt((int) Math.min(Integer.MAX_VALUE, sample.bytesRead));
+        record.putInt((int) Math.min(Integer.MAX_VALUE, sample.bytesWritten));
+        record.putShort((short) Math.min(Short.MAX_VALUE, sample.files.size()));
+        record.flip();
+
+        // Shared, so a fold cannot rename the log between this open and write
+        GameLock lock = GameLock.shared(gameName);
+        try (FileChannel channel = FileChannel.open(Paths.get(gameName, LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            return channel.size() / RECORD_SIZE;
+        } finally {
+            lock.close();
+        }
+    }
+
+    /*
+     * Move the log's records into stats.bin, holding the game exclusively so folds from several
+     * processes take turns. The log is renamed out of the way first, so a fold that dies part-way
+     * leaves its records for the next one instead of mixing them with new ones.
+     */
+    static Map<String, Totals> fold(String gameName) throws IOException {
+        GameLock lock = GameLock.exclusive(gameName);
+        try {
+            return foldLocked(gameName);
+        } finally {
+            lock.close();
+        }
+    }
+
+    private static Map<String, Totals> foldLocked(String gameName) throws IOException {
+        Path log = Paths.get(gameName, LOG_FILE);
+        Path folding = Paths.get(gameName, LOG_FILE + ".fold");
+        Map<String, Totals> totals = load(gameName);
+
+        // A fold file left by an interrupted fold is taken first; the log waits for the next fold
+        if (!Files.exists(folding)) {
+            try {
+                Files.move(log, folding, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                return totals;
+            }
+        }
+
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(folding));
+        long[] phaseNanos = new long[PHASES.length];
+        byte[] name = new byte[COMMAND_LENGTH];
+        while (records.remaining() >= RECORD_SIZE) {
+            records.getLong();
+            records.get(name);
+            int length = 0;
+            while (length < COMMAND_LENGTH && name[length] != 0) {
+                length++;
+            }
+            String command = new String(name, 0, length, StandardCharsets.UTF_8);
+            for (int i = 0; i < phaseNanos.length; i++) {
+                phaseNanos[i] = records.getLong();
+            }
+            long read = records.getInt() & 0xFFFFFFFFL;
+            long written = records.getInt() & 0xFFFFFFFFL;
+            int touched = records.getShort();
+            totals.computeIfAbsent(command, key -> new Totals()).add(phaseNanos, read, written, touched);
+        }
+
+        save(gameName, totals);
+        Files.delete(folding);
+        return totals;
+    }
+
+    private static Map<String, Totals> load(String gameName) throws IOException {
+        Map<String, Totals> totals = new TreeMap<>();
+        Path file = Paths.get(gameName, STATS_FILE);
+        if (!Files.exists(file)) {
+            return totals;
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+        if (in.readInt() != STATS_MAGIC) {
+            throw new IOException("Not a stats file: " + file);
+        }
+        int commands = in.readUnsignedShort();
+        for (int c = 0; c < commands; c++) {
+            String command = in.readUTF();
+            Totals entry = new Totals();
+            entry.bytesRead.set(in.readLong());
+            entry.bytesWritten.set(in.readLong());
+            entry.files.set(in.readLong());
+            for (int i = 0; i < PHASES.length; i++) {
+                entry.phases[i] = LatencyHistogram.read(in);
+            }
+            totals.put(command, entry);
+        }
+        return totals;
+    }
+
+    private static void save(String gameName, Map<String, Totals> totals) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(STATS_MAGIC);
+        out.writeShort(totals.size());
+        for (Map.Entry<String, Totals> entry : totals.entrySet()) {
+            Totals value = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeLong(value.bytesRead.get());
+            out.writeLong(value.bytesWritten.get());
+            out.writeLong(value.files.get());
+            for (LatencyHistogram phase : value.phases) {
+                phase.write(out);
+            }
+        }
+        out.flush();
+
+        Path file = Paths.get(gameName, STATS_FILE);
+        Path temp = file.resolveSibling(STATS_FILE + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Everything recorded for a game, with the log folded in first
+    public static void printGame(String gameName, PrintStream out) throws IOException {
+        Map<String, Totals> totals = fold(gameName);
+        long commands = 0;
+        for (Totals value : totals.values()) {
+            commands += value.commands();
+        }
+        out.println("Command stats for game '" + gameName + "' (" + commands + " commands)");
+        print(totals, out);
+    }
+
+    static void print(Map<String, Totals> totals, PrintStream out) {
+        out.printf("%-12s %-6s %8s %10s %10s %10s %10s%n", "command", "phase", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Totals> entry : new TreeMap<>(totals).entrySet()) {
+            Totals value = entry.getValue();
+            for (int i = 0; i < PHASES.length; i++) {
+                LatencyHistogram phase = value.phases[i];
+                if (phase.getCount() == 0) {
+                    continue;
+                }
+                out.printf("%-12s %-6s %8d %10.3f %10.3f %10.3f %10.3f%n", i == 0 ? entry.getKey() : "", PHASES[i],
+                        phase.getCount(), millis(phase.getPercentile(0.50)), millis(phase.getPercentile(0.90)),
+                        millis(phase.getPercentile(0.99)), millis(phase.getMax()));
+            }
+            long commands = Math.max(1, value.commands());
+            out.printf("%-12s %-6s per command: %.0f bytes read, %.0f bytes written, %.1f files%n", "", "io",
+                    (double) value.bytesRead.get() / commands, (double) value.bytesWritten.get() / commands,
+                    (double) value.files.get() / commands);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // Publish this process's totals as an MXBean; long-lived modes call this once at startup
+    public static void registerMBean() {
+        if (mbeanRegistered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(CommandStatsMXBean.OBJECT_NAME));
+            mbeanRegistered = true;
+        } catch (JMException e) {
+            System.err.println("Error registering stats MBean: " + e.getMessage());
+        }
+    }
+
+    private static class Bean implements CommandStatsMXBean {
+        @Override
+        public long getCommands() {
+            long commands = 0;
+            for (Totals value : PROCESS.values()) {
+                commands += value.commands();
+            }
+            return commands;
+        }
+
+        @Override
+        public long getBytesRead() {
+            long bytes = 0;
+            for (Totals value : PROCESS.values()) {
+                bytes += value.bytesRead.get();
+            }
+            return bytes;
+        }
+
+        @Override
+        public long getBytesWritten() {
+            long bytes = 0;
+            for (Totals value : PROCESS.values()) {
+                bytes += value.bytesWritten.get();
+            }
+            return bytes;
+        }
+
+        @Override
+        public long getFilesTouched() {
+            long files = 0;
+            for (Totals value : PROCESS.values()) {
+                files += value.files.get();
+            }
+            return files;
+        }
+
+        @Override
+        public Map<String, Long> getP50Micros() {
+            return percentiles(0.50);
+        }
+
+        @Override
+        public Map<String, Long> getP99Micros() {
+            return percentiles(0.99);
+        }
+
+        @Override
+        public Map<String, Long> getMaxMicros() {
+            return percentiles(1.0);
+        }
+
+        @Override
+        public String getReport() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(bytes, true);
+            print(PROCESS, out);
+            return bytes.toString();
+        }
+
+        @Override
+        public void reset() {
+            PROCESS.clear();
+        }
+
+        // Keyed "command.phase", e.g. "play.save"
+        private Map<String, Long> percentiles(double fraction) {
+            Map<String, Long> result = new TreeMap<>();
+            for (Map.Entry<String, Totals> entry : PROCESS.entrySet()) {
+                LatencyHistogram[] phases = entry.getValue().phases;
+                for (int i = 0; i < phases.length; i++) {
+                    if (phases[i].getCount() > 0) {
+                        result.put(entry.getKey() + "." + PHASES[i], phases[i].getPercentile(fraction) / 1000);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+import java.util.Map;
+
+/*
+ * JMX view of the command stats of a long-lived process (see CommandStats). Latency maps are
+ * keyed "command.phase", for example "play.save", in microseconds.
+ */
+public interface CommandStatsMXBean {
+    String OBJECT_NAME = "CrazyEights:type=CommandStats";
+
+    long getCommands();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getFilesTouched();
+
+    Map<String, Long> getP50Micros();
+
+    Map<String, Long> getP99Micros();
+
+    Map<String, Long> getMaxMicros();
+
+    String getReport();
+
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/*
+ * Lets a long-running process send each thread's System.out, System.err and password prompts
+ * to a different place, so commands written for the console can be served to remote clients.
+ * Threads without a route keep writing to the real console.
+ */
+public class ConsoleRouter {
+    private static final PrintStream CONSOLE_OUT = System.out;
+    private static final PrintStream CONSOLE_ERR = System.err;
+
+    private static final ThreadLocal<Route> ROUTE = new ThreadLocal<>();
+    private static boolean installed = false;
+    // One reader for everything taken from standard input, so nothing read ahead is lost
+    private static BufferedReader stdin;
+
+    private static class Route {
+        final PrintStream out;
+        final PrintStream err;
+        final Supplier<String> passwords;
+
+        Route(PrintStream out, PrintStream err, Supplier<String> passwords) {
+            this.out = out;
+            this.err = err;
+            this.passwords = passwords;
+        }
+    }
+
+    // Replace System.out and System.err with streams that honour per-thread routes
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        System.setOut(new PrintStream(new RoutedOutput(false), true));
+        System.setErr(new PrintStream(new RoutedOutput(true), true));
+        installed = true;
+    }
+
+    public static void route(PrintStream out, PrintStream err, Supplier<String> passwords) {
+        ROUTE.set(new Route(out, err, passwords));
+    }
+
+    public static void clear() {
+        ROUTE.remove();
+    }
+
+    // Password from the current thread's route, or null when the thread reads from the console
+    public static String readPassword() {
+        Route route = ROUTE.get();
+        return route == null ? null : route.passwords.get();
+    }
+
+    // Next line of standard input, or null at the end of input
+    public static synchronized String readLine() throws IOException {
+        if (stdin == null) {
+            stdin = new BufferedReader(new InputStreamReader(System.in));
+        }
+        return stdin.readLine();
+    }
+
+    private static class RoutedOutput extends OutputStream {
+        private final boolean error;
+
+        RoutedOutput(boolean error) {
+            this.error = error;
+        }
+
+        private PrintStream target() {
+            Route route = ROUTE.get();
+            if (route == null) {
+                return error ? CONSOLE_ERR : CONSOLE_OUT;
+            }
+            return error ? route.err : route.out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+}
\ No newline at end of file
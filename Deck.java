@@ -1,100 +1,265 @@
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
 /*
  * Prompt: Based on the Card class, create a basic Deck class
+ *
+ * The cards are kept as ordinals in a ring buffer, so drawing from the top and adding to either
+ * end are O(1) and never shift the rest of the pile.
  */
 public class Deck {
-    private List<Card> cards;
-    
-    // Standard ranks for a deck of cards
-    private static final String[] RANKS = {"A", "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K"};
-    
-    // Standard suits for a deck of cards
-    private static final String[] SUITS = {Card.HEARTS, Card.DIAMONDS, Card.CLUBS, Card.SPADES};
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Generator used when a shuffle only supplies a seed; any RandomGeneratorFactory name works
+    public static final String DEFAULT_SHUFFLE_ALGORITHM = "SplittableRandom";
+
+    // Ring buffer of card ordinals; the top of the deck is at head
+    private byte[] cards;
+    private int head;
+    private int count;
+    // Set by every change, so persistence can skip a pile that has not changed since it was saved
+    private boolean dirty = true;
 
     public Deck() {
-        cards = new ArrayList<>();
+        cards = new byte[INITIAL_CAPACITY];
         initializeDeck();
     }
     
     // Create a deck from an existing list of cards
     public Deck(List<Card> cards) {
-        this.cards = new ArrayList<>(cards);
+        this.cards = new byte[capacityFor(cards.size())];
+        for (Card card : cards) {
+            addCard(card);
+        }
+    }
+    
+    // Put all 52 cards back in the deck in their unshuffled order
+    public void reset() {
+        ensureCapacity(Card.CARD_COUNT);
+        initializeDeck();
+    }
+
+    public void clear() {
+        head = 0;
+        count = 0;
+        dirty = true;
     }
     
     // Initialize with a standard 52-card deck
     private void initializeDeck() {
-        for (String suit : SUITS) {
-            for (String rank : RANKS) {
-                cards.add(new Card(rank, suit));
-            }
+        for (int ordinal = 0; ordinal < Card.CARD_COUNT; ordinal++) {
+            cards[ordinal] = (byte) ordinal;
         }
+        head = 0;
+        count = Card.CARD_COUNT;
+        dirty = true;
     }
     
-    // Shuffle the deck
+    // Shuffle the deck with a fresh random seed
     public void shuffle() {
-        Collections.shuffle(cards);
+        shuffle(new SplittableRandom());
+    }
+
+    // Shuffle the deck reproducibly: the same seed always gives the same order
+    public void shuffle(long seed) {
+        shuffle(newGenerator(DEFAULT_SHUFFLE_ALGORITHM, seed));
+    }
+
+    // Fisher-Yates pass over the ordinals using the supplied generator
+    public void shuffle(RandomGenerator random) {
+        dirty = true;
+        int mask = cards.length - 1;
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int slotI = (head + i) & mask;
+            int slotJ = (head + j) & mask;
+            byte swap = cards[slotI];
+            cards[slotI] = cards[slotJ];
+            cards[slotJ] = swap;
+        }
+    }
+
+    public static RandomGenerator newGenerator(String algorithm, long seed) {
+        if (DEFAULT_SHUFFLE_ALGORITHM.equals(algorithm)) {
+            return new SplittableRandom(seed);
+        }
+        try {
+            return RandomGeneratorFactory.of(algorithm).create(seed);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown shuffle algorithm: " + algorithm, e);
+        }
     }
     
     // Draw a card from the top of the deck
     public Card drawCard() {
-        if (cards.isEmpty()) {
+        if (count == 0) {
             return null;
         }
-        return cards.remove(0);
+        Card card = Card.of(cards[head]);
+        head = (head + 1) & (cards.length - 1);
+        count--;
+        dirty = true;
+        return card;
     }
     
     // Add a card to the deck (to the bottom by default)
     public void addCard(Card card) {
-        cards.add(card);
+        ensureCapacity(count + 1);
+        cards[(head + count) & (cards.length - 1)] = (byte) card.getOrdinal();
+        count++;
+        dirty = true;
     }
     
     // Add a card to the top of the deck
     public void addCardToTop(Card card) {
-        cards.add(0, card);
+        ensureCapacity(count + 1);
+        head = (head - 1) & (cards.length - 1);
+        cards[head] = (byte) card.getOrdinal();
+        count++;
+        dirty = true;
+    }
+
+    // Remove the bottom card (the most recently added one)
+    public Card removeBottom() {
+        if (count == 0) {
+            return null;
+        }
+        count--;
+        dirty = true;
+        return Card.of(cards[(head + count) & (cards.length - 1)]);
+    }
+
+    // Look at the top card without removing it
+    public Card peekTop() {
+        return count == 0 ? null : Card.of(cards[head]);
+    }
+
+    // Look at the bottom card (the most recently added one) without removing it
+    public Card peekBottom() {
+        return count == 0 ? null : Card.of(cards[(head + count - 1) & (cards.length - 1)]);
     }
     
     // Check if the deck is empty
     public boolean isEmpty() {
-        return cards.isEmpty();
+        return count == 0;
     }
     
     // Get the number of cards in the deck
     public int size() {
-        return cards.size();
+        return count;
     }
     
-    // Deal a specific number of cards from the deck
-    public List<Card> dealCards(int numCards) {
-        List<Card> dealtCards = new ArrayList<>();
-        for (int i = 0; i < numCards && !cards.isEmpty(); i++) {
-            dealtCards.add(drawCard());
+    // Deal cardsPerPlayer cards from the top of the deck straight into each player's hand
+    public void dealCards(List<Player> players, int cardsPerPlayer) {
+        for (Player player : players) {
+            for (int i = 0; i < cardsPerPlayer && count > 0; i++) {
+                player.addCard(drawCard());
+            }
         }
-        return dealtCards;
     }
     
-    // Get a copy of all cards in the deck without removing them
+    // Read-only view of the cards in the deck, top first; it reflects later changes to the deck
     public List<Card> getCards() {
-        return new ArrayList<>(cards);
+        return new CardView();
     }
     
-    // Convert the deck to a list of card codes
+    // Read-only view of the deck as card codes, top first
     public List<String> toCardCodes() {
-        List<String> codes = new ArrayList<>();
-        for (Card card : cards) {
-            codes.add(card.getCode());
-        }
-        return codes;
+        return new CodeView();
     }
     
     // Create a deck from a list of card codes
     public static Deck fromCardCodes(List<String> codes) {
-        List<Card> cards = new ArrayList<>();
+        Deck deck = new Deck(Collections.emptyList());
         for (String code : codes) {
-            cards.add(Card.fromCode(code));
+            deck.addCard(Card.fromCode(code));
+        }
+        return deck;
+    }
+
+    // Make target an exact copy of this deck; it only allocates when target is too small
+    public void copyInto(Deck target) {
+        if (target.cards.length < count) {
+            target.cards = new byte[cards.length];
+        }
+        for (int i = 0; i < count; i++) {
+            target.cards[i] = (byte) ordinalAt(i);
+        }
+        target.head = 0;
+        target.count = count;
+        target.dirty = true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    // Call once the pile has been saved
+    public void clearDirty() {
+        dirty = false;
+    }
+
+    int ordinalAt(int index) {
+        return cards[(head + index) & (cards.length - 1)];
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= cards.length) {
+            return;
+        }
+        byte[] grown = new byte[capacityFor(required)];
+        for (int i = 0; i < count; i++) {
+            grown[i] = (byte) ordinalAt(i);
+        }
+        cards = grown;
+        head = 0;
+    }
+
+    // Smallest power of two that holds the requested number of cards
+    private static int capacityFor(int size) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private class CardView extends AbstractList<Card> implements RandomAccess {
+        @Override
+        public Card get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            return Card.of(ordinalAt(index));
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    private class CodeView extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            return Card.of(ordinalAt(index)).getCode();
+        }
+
+        @Override
+        public int size() {
+            return count;
         }
-        return new Deck(cards);
     }
 }
\ No newline at end of file
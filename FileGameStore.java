@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The original layout: a directory per game with its users in users.txt and the game either
+ * as a snapshot plus move journal (game.bin, journal.bin) or, for games started before
+ * snapshots, as one text file per hand, drawn flag and pile (see --migrate). Snapshot games
+ * in use are kept in GameCache when the process has it enabled.
+ */
+public class FileGameStore implements GameStore {
+
+    @Override
+    public boolean createGame(String gameName) {
+        return GameFileManager.createGameDirectory(gameName);
+    }
+
+    @Override
+    public boolean gameExists(String gameName) {
+        return GameFileManager.gameExists(gameName);
+    }
+
+    @Override
+    public void saveAdminCredentials(String gameName, String hashedPassword) throws IOException {
+        GameFileManager.saveAdminCredentials(gameName, hashedPassword);
+    }
+
+    @Override
+    public void addUser(String gameName, String username, String hashedPassword) throws IOException {
+        GameFileManager.addUser(gameName, username, hashedPassword);
+    }
+
+    @Override
+    public boolean removeUser(String gameName, String username) throws IOException {
+        return GameFileManager.removeUser(gameName, username);
+    }
+
+    @Override
+    public List<String> getUsers(String gameName) throws IOException {
+        return GameFileManager.getUsers(gameName);
+    }
+
+    @Override
+    public String getHashedPassword(String gameName, String username) throws IOException {
+        return GameFileManager.getHashedPassword(gameName, username);
+    }
+
+    @Override
+    public boolean isStarted(String gameName) throws IOException {
+        return GameFileManager.hasSnapshot(gameName) || GameFileManager.loadCurrentPlayer(gameName) != null;
+    }
+
+    // Whether the game is still in the text layout; such games are read a file at a time
+    public boolean isTextLayout(String gameName) {
+        return !GameFileManager.hasSnapshot(gameName);
+    }
+
+    @Override
+    public Game loadGame(String gameName) throws IOException {
+        if (isTextLayout(gameName)) {
+            return loadTextLayout(gameName);
+        }
+
+        Game game = GameCache.get(gameName);
+        if (game == null) {
+            game = GameFileManager.loadSnapshot(gameName);
+            MoveJournal.replay(gameName, game);
+            game.clearDirty();
+            GameCache.put(game);
+        }
+        return game;
+    }
+
+    @Override
+    public Game getCachedGame(String gameName) throws IOException {
+        return GameCache.get(gameName);
+    }
+
+    // A new deal is always a snapshot; text files left from an earlier game are removed
+    @Override
+    public void startGame(Game game) throws IOException {
+        saveSnapshot(game);
+        List<String> users = GameFileManager.getUsers(game.getGameName());
+        users.removeIf(user -> user.equals("admin"));
+        GameFileManager.deleteTextLayout(game.getGameName(), users);
+    }
+
+    @Override
+    public void saveGame(Game game) throws IOException {
+        if (isTextLayout(game.getGameName()) && GameFileManager.hasTextLayout(game.getGameName())) {
+            saveTextLayout(game);
+        } else {
+            saveSnapshot(game);
+        }
+    }
+
+    // Append the move to the journal, or checkpoint the whole game when one is due
+    @Override
+    public void saveMove(Game game, int type, int playerIndex, Card card) throws IOException {
+        if (isTextLayout(game.getGameName()) || MoveJournal.isCheckpointDue(game)) {
+            saveGame(game);
+            return;
+        }
+        MoveJournal.append(game.getGameName(), game.getMoveCount() - 1, type, playerIndex, card);
+        game.clearDirty();
+        GameCache.put(game);
+    }
+
+    // Turn a text-layout game into a snapshot and remove its text files
+    public void migrate(Game game) throws IOException {
+        List<String> users = new ArrayList<>();
+        for (Player player : game.getPlayers()) {
+            users.add(player.getName());
+        }
+        GameFileManager.saveSnapshot(game);
+        GameFileManager.deleteTextLayout(game.getGameName(), users);
+    }
+
+    private void saveSnapshot(Game game) throws IOException {
+        GameFileManager.saveSnapshot(game);
+        MoveJournal.reset(game.getGameName());
+        game.clearDirty();
+        GameCache.put(game);
+    }
+
+    // Games started before snapshots existed keep their text files until --migrate is run
+    private Game loadTextLayout(String gameName) throws IOException {
+        List<String> users = GameFileManager.getUsers(gameName);
+        
+        users.removeIf(user -> user.equals("admin"));
+        
+        if (users.isEmpty()) {
+            return null;
+        }
+        if (users.size() > GameState.MAX_PLAYERS) {
+            throw new IOException("Game '" + gameName + "' has " + users.size() + " players; at most "
+                    + GameState.MAX_PLAYERS + " can play one game.");
+        }
+        
+        Game game = new Game(gameName, users, new Deck(new ArrayList<>()));
+        
+        // Load player hands and states
+        for (String user : users) {
+            List<String> cardCodes = GameFileManager.loadPlayerHand(gameName, user);
+            Player player = game.getPlayerByName(user);
+            
+            if (player != null) {
+                if (!cardCodes.isEmpty()) {
+                    for (String code : cardCodes) {
+                        player.addCard(Card.fromCode(code));
+                    }
+                }
+
+                boolean hasDrawn = GameFileManager.loadPlayerDrawnState(gameName, user);
+                player.setHasDrawnThisTurn(hasDrawn);
+            }
+        }
+        
+        // Load draw pile
+        for (String code : GameFileManager.loadDrawPile(gameName)) {
+            game.getDrawPile().addCard(Card.fromCode(code));
+        }
+        
+        // Load discard pile
+        for (String code : GameFileManager.loadDiscardPile(gameName)) {
+            game.getDiscardPile().addCard(Card.fromCode(code));
+        }
+        
+        String[] seedState = GameFileManager.loadSeed(gameName);
+        if (seedState != null) {
+            try {
+                game.setSeed(seedState[0], Long.parseLong(seedState[1]));
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring unreadable shuffle seed: " + seedState[1]);
+            }
+        }
+        
+        findCurrentPlayer(game);
+        // What was just read matches the files, so the next save only writes what a move changes
+        game.clearDirty();
+        
+        return game;
+    }
+    
+    /*
+     * Prompt: Find the current player based on the turns file. This method reads the turns file and sets the current player index in the game object.
+     */
+    private void findCurrentPlayer(Game game) {
+        String currentPlayerName;
+        try {
+            currentPlayerName = GameFileManager.loadCurrentPlayer(game.getGameName());
+        } catch (IOException e) {
+            System.err.println("Error reading current player: " + e.getMessage());
+            return;
+        }
+
+        if (currentPlayerName != null) {
+            List<Player> players = game.getPlayers();
+            for (int i = 0; i < players.size(); i++) {
+                if (players.get(i).getName().equals(currentPlayerName)) {
+
+                    game.restoreTurn(i, false, false);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Rewrite only the files whose part of the game changed since it was loaded or last saved
+    private void saveTextLayout(Game game) throws IOException {
+        String gameName = game.getGameName();
+        for (Player player : game.getPlayers()) {
+            if (player.isHandDirty()) {
+                GameFileManager.savePlayerHand(gameName, player.getName(), player.getHandAsCodes());
+            }
+            if (player.isDrawnStateDirty()) {
+                GameFileManager.savePlayerDrawnState(gameName, player.getName(), player.hasDrawnThisTurn());
+            }
+        }
+        
+        if (game.getDrawPile().isDirty()) {
+            GameFileManager.saveDrawPile(gameName, game.getDrawPile().toCardCodes());
+        }
+        if (game.getDiscardPile().isDirty()) {
+            GameFileManager.saveDiscardPile(gameName, game.getDiscardPile().toCardCodes());
+        }
+
+        if (game.getState().isTurnDirty()) {
+            GameFileManager.saveCurrentPlayer(gameName, game.getCurrentPlayer().getName());
+        }
+        game.clearDirty();
+    }
+}
\ No newline at end of file
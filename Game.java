@@ -1,65 +1,83 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
+/*
+ * A named game over a GameState. The state holds the hands, piles and turn; Game adds the
+ * player names, the deal and the move checks, and its Players are views onto the state's seats.
+ */
 public class Game {
-    private List<Player> players;
-    private Deck drawPile;
-    private Deck discardPile;
-    private int currentPlayerIndex;
-    private boolean gameOver;
+    private final List<Player> players;
+    private final GameState state;
     private String gameName;
-    private boolean reverseDirection;
+    private String shuffleAlgorithm;
     
     public Game(String gameName, List<String> playerNames, Deck drawPile) {
         this.gameName = gameName;
-        this.players = new ArrayList<>();
+        this.state = new GameState(playerNames.size(), drawPile, new Deck(new ArrayList<>()));
+        List<Player> seats = new ArrayList<>(playerNames.size());
         for (String name : playerNames) {
-            players.add(new Player(name));
+            seats.add(new Player(name, state, seats.size()));
         }
-        this.drawPile = drawPile;
-        this.discardPile = new Deck(new ArrayList<>());
-        this.currentPlayerIndex = 0;
-        this.gameOver = false;
-        this.reverseDirection = false;
+        this.players = Collections.unmodifiableList(seats);
+        this.shuffleAlgorithm = Deck.DEFAULT_SHUFFLE_ALGORITHM;
     }
     
     public void initializeGame() {
+        initializeGame(new SplittableRandom().nextLong());
+    }
+
+    public void initializeGame(long seed) {
+        initializeGame(Deck.DEFAULT_SHUFFLE_ALGORITHM, seed);
+    }
+
+    public void initializeGame(String shuffleAlgorithm, long seed) {
+        initializeGame(shuffleAlgorithm, seed, Rules.INITIAL_CARDS_PER_PLAYER);
+    }
+
+    /*
+     * Deal a new game; the same algorithm and seed always produce the same deal. The piles and
+     * players are reused, so a Game can be dealt again and again without allocating new ones.
+     */
+    public void initializeGame(String shuffleAlgorithm, long seed, int cardsPerPlayer) {
+        RandomGenerator random = Deck.newGenerator(shuffleAlgorithm, seed);
+        this.shuffleAlgorithm = shuffleAlgorithm;
+        Deck drawPile = state.getDrawPile();
+        Deck discardPile = state.getDiscardPile();
 
-        drawPile = new Deck();
-        drawPile.shuffle();
+        drawPile.reset();
+        drawPile.shuffle(random);
 
-        discardPile = new Deck(new ArrayList<>());
+        discardPile.clear();
         
 
         for (Player player : players) {
-            player.addCards(drawPile.dealCards(Rules.INITIAL_CARDS_PER_PLAYER));
+            player.clearHand();
+            player.setHasDrawnThisTurn(false);
         }
+        drawPile.dealCards(players, cardsPerPlayer);
 
         Card firstCard = drawPile.drawCard();
         discardPile.addCard(firstCard);
         
 
-        currentPlayerIndex = 0;
-        gameOver = false;
-        reverseDirection = false;
-        
-
-        for (Player player : players) {
-            player.setHasDrawnThisTurn(false);
-        }
+        state.setSeed(seed);
+        state.setCurrentPlayer(0);
+        state.setGameOver(false);
+        state.setReverseDirection(false);
+        state.setMoveCount(0);
+        state.clearHistory();
     }
     
 
     public Player getCurrentPlayer() {
-        return players.get(currentPlayerIndex);
+        return players.get(state.getCurrentPlayer());
     }
 
     public Card getTopDiscard() {
-        List<Card> cards = discardPile.getCards();
-        if (cards.isEmpty()) {
-            return null;
-        }
-        return cards.get(cards.size() - 1);
+        return state.getTopDiscard();
     }
     
 
@@ -78,20 +96,8 @@ public class Game {
             return false;
         }
 
-        Card playedCard = currentPlayer.playCard(cardCode);
-        if (playedCard == null) {
-            return false; 
-        }
-        
-        discardPile.addCard(playedCard);
-        
-
-        if (checkGameOver()) {
-            return true;
-        }
-        
-
-        nextTurn();
+        // Ends the game or passes the turn on
+        apply(cardToPlay.getOrdinal());
         return true;
     }
     
@@ -105,17 +111,25 @@ public class Game {
         }
         
 
-        Card drawnCard = drawPile.drawCard();
-        if (drawnCard == null) {
+        if (!state.canDraw()) {
 
-            gameOver = true;
+            state.setGameOver(true);
             return null;
         }
 
-        currentPlayer.addCard(drawnCard);
-        currentPlayer.setHasDrawnThisTurn(true);
-        
-        return drawnCard;
+        return Card.of(apply(Move.DRAW_INDEX));
+    }
+    
+    // Make a move for the current player; returns false if it was not allowed
+    public boolean makeMove(Move move) {
+        switch (move.getType()) {
+            case Move.PLAY:
+                return playCard(move.getCard().getCode());
+            case Move.DRAW:
+                return drawCard() != null;
+            default:
+                return passTurn();
+        }
     }
     
     public boolean passTurn() {
@@ -131,20 +145,22 @@ public class Game {
             return false; 
         }
 
-        nextTurn();
+        apply(Move.PASS_INDEX);
         return true;
     }
     
-    private void nextTurn() {
-        getCurrentPlayer().setHasDrawnThisTurn(false);
-        currentPlayerIndex = Rules.getNextPlayerIndex(currentPlayerIndex, players.size(), reverseDirection);
+    // A Game never takes a move back, so the state's undo history is dropped straight away
+    private int apply(int move) {
+        int result = state.applyMove(move);
+        state.clearHistory();
+        return result;
     }
     
     public boolean checkGameOver() {
         Player currentPlayer = getCurrentPlayer();
         
-        if (Rules.isGameOver(currentPlayer, drawPile)) {
-            gameOver = true;
+        if (Rules.isGameOver(currentPlayer, state.getDrawPile(), state.isReshuffleDiscards() ? state.getDiscardPile() : null)) {
+            state.setGameOver(true);
             return true;
         }
         
@@ -152,18 +168,10 @@ public class Game {
     }
 
     public Player getWinner() {
-        if (!gameOver) {
+        if (!state.isGameOver()) {
             return null;
         }
-
-        for (Player player : players) {
-            if (player.hasWon()) {
-                return player;
-            }
-        }
-        
-        Player[] playersArray = players.toArray(new Player[0]);
-        return Rules.determineWinnerByPoints(playersArray);
+        return players.get(state.getWinner());
     }
     
     public Player getPlayerByName(String name) {
@@ -175,17 +183,18 @@ public class Game {
         return null;
     }
     
+    // Read-only; the players are views onto this game's state
     public List<Player> getPlayers() {
-        return new ArrayList<>(players);
+        return players;
     }
     
     public List<String> getTurnOrder() {
         List<String> order = new ArrayList<>();
-        int index = currentPlayerIndex;
+        int index = state.getCurrentPlayer();
         
         for (int i = 0; i < players.size(); i++) {
             order.add(players.get(index).getName());
-            index = Rules.getNextPlayerIndex(index, players.size(), reverseDirection);
+            index = Rules.getNextPlayerIndex(index, players.size(), state.isReverseDirection());
         }
         
         return order;
@@ -194,17 +203,85 @@ public class Game {
     public String getGameName() {
         return gameName;
     }
+
+    // An independent copy of the game, with nothing marked as changed
+    public Game copy() {
+        List<String> names = new ArrayList<>(players.size());
+        for (Player player : players) {
+            names.add(player.getName());
+        }
+        Game copy = new Game(gameName, names, new Deck(new ArrayList<>()));
+        state.copyInto(copy.state);
+        copy.shuffleAlgorithm = shuffleAlgorithm;
+        copy.clearDirty();
+        return copy;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    // Mark the whole game as saved; a later save can skip the players and piles left untouched
+    public void clearDirty() {
+        state.clearDirty();
+    }
+
+    public long getSeed() {
+        return state.getSeed();
+    }
+
+    public String getShuffleAlgorithm() {
+        return shuffleAlgorithm;
+    }
+
+    // Restore the seed a persisted game was dealt with
+    public void setSeed(String shuffleAlgorithm, long seed) {
+        this.shuffleAlgorithm = shuffleAlgorithm;
+        state.setSeed(seed);
+    }
     
     public boolean isGameOver() {
-        return gameOver;
+        return state.isGameOver();
+    }
+
+    public int getCurrentPlayerIndex() {
+        return state.getCurrentPlayer();
+    }
+
+    public boolean isReverseDirection() {
+        return state.isReverseDirection();
+    }
+
+    public boolean isReshuffleDiscards() {
+        return state.isReshuffleDiscards();
+    }
+
+    public void setReshuffleDiscards(boolean reshuffleDiscards) {
+        state.setReshuffleDiscards(reshuffleDiscards);
+    }
+
+    // Number of successful plays, draws and passes; the sequence number of the next move
+    public int getMoveCount() {
+        return state.getMoveCount();
+    }
+
+    public void setMoveCount(int moveCount) {
+        state.setMoveCount(moveCount);
+    }
+
+    // Restore the turn pointer of a persisted game
+    public void restoreTurn(int currentPlayerIndex, boolean reverseDirection, boolean gameOver) {
+        state.setCurrentPlayer(currentPlayerIndex);
+        state.setReverseDirection(reverseDirection);
+        state.setGameOver(gameOver);
     }
     
     public Deck getDrawPile() {
-        return drawPile;
+        return state.getDrawPile();
     }
     
 
     public Deck getDiscardPile() {
-        return discardPile;
+        return state.getDiscardPile();
     }
 }
\ No newline at end of file
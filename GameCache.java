@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Keeps recently used snapshot games in memory for long-running modes such as the daemon.
+ * A cached game is only reused while its snapshot and journal files are exactly as this process
+ * last saw them, so a write from another process forces a reload. The cache keeps a copy of
+ * each game and hands out copies, so a caller that changes a game without saving it cannot
+ * spoil the cached one.
+ */
+public class GameCache {
+    private static final Map<String, Entry> GAMES = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = false;
+
+    private static class Entry {
+        final Game game;
+        final Object snapshotKey;
+        final long snapshotModified;
+        final long snapshotSize;
+        final long journalSize;
+
+        Entry(Game game, Object snapshotKey, long snapshotModified, long snapshotSize, long journalSize) {
+            this.game = game;
+            this.snapshotKey = snapshotKey;
+            this.snapshotModified = snapshotModified;
+            this.snapshotSize = snapshotSize;
+            this.journalSize = journalSize;
+        }
+    }
+
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+        if (!enable) {
+            GAMES.clear();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // A copy of the cached game, or null if there is none or the files have changed since it was cached
+    public static Game get(String gameName) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+
+        Entry entry = GAMES.get(gameName);
+        if (entry == null) {
+            return null;
+        }
+
+        Entry current = stamp(gameName, entry.game);
+        if (current == null
+                || !Objects.equals(current.snapshotKey, entry.snapshotKey)
+                || current.snapshotModified != entry.snapshotModified
+                || current.snapshotSize != entry.snapshotSize
+                || current.journalSize != entry.journalSize) {
+            GAMES.remove(gameName, entry);
+            return null;
+        }
+        return entry.game.copy();
+    }
+
+    // Remember a game that matches what is currently on disk
+    public static void put(Game game) throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Entry entry = stamp(game.getGameName(), game.copy());
+        if (entry != null) {
+            GAMES.put(game.getGameName(), entry);
+        }
+    }
+
+    public static void invalidate(String gameName) {
+        GAMES.remove(gameName);
+    }
+
+    private static Entry stamp(String gameName, Game game) throws IOException {
+        BasicFileAttributes snapshot;
+        try {
+            snapshot = Files.readAttributes(Paths.get(gameName, GameFileManager.SNAPSHOT_FILE), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        Path journal = Paths.get(gameName, MoveJournal.JOURNAL_FILE);
+        long journalSize = Files.exists(journal) ? Files.size(journal) : -1;
+
+        return new Entry(game, snapshot.fileKey(), snapshot.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                snapshot.size(), journalSize);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+
+/*
+ * Resident server that keeps the JVM and recently used games warm and runs CommandHandler
+ * commands sent by thin clients over a Unix domain socket. Clients are served concurrently;
+ * commands on the same game run one after another (see GameService).
+ *
+ * A client sends its argument list; the daemon answers with frames of
+ *   byte type, int length, payload
+ * where type is OUTPUT or ERROR (console text), PASSWORD (the client must reply with a
+ * password as a UTF string) or DONE (the command has finished).
+ */
+public class GameDaemon {
+    public static final String DEFAULT_SOCKET = "crazy-eights.sock";
+
+    private static final byte OUTPUT = 'O';
+    private static final byte ERROR = 'E';
+    private static final byte PASSWORD = 'P';
+    private static final byte DONE = 'X';
+
+    public static Path defaultSocketPath() {
+        String configured = System.getenv("CRAZY_EIGHTS_SOCKET");
+        return Paths.get(configured != null ? configured : DEFAULT_SOCKET);
+    }
+
+    public static void run(Path socketPath) throws IOException {
+        if (Files.exists(socketPath)) {
+            if (isRunning(socketPath)) {
+                System.err.println("A daemon is already listening on " + socketPath);
+                return;
+            }
+            Files.delete(socketPath);
+        }
+
+        ConsoleRouter.install();
+        GameCache.setEnabled(true);
+        CommandStats.registerMBean();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socketPath);
+                } catch (IOException e) {
+                    // Nothing left to report to at shutdown
+                }
+            }));
+            System.out.println("Crazy Eights daemon listening on " + socketPath);
+
+            // One (virtual where possible) thread per connection; commands queue per game
+            try (GameService service = new GameService()) {
+                ExecutorService connections = GameService.newThreadPerTaskExecutor("daemon-client-");
+                while (true) {
+                    SocketChannel client = server.accept();
+                    connections.execute(() -> {
+                        try (client) {
+                            serve(service, client);
+                        } catch (IOException e) {
+                            System.err.println("Error serving client: " + e.getMessage());
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /*
+     * Send the arguments to a running daemon and relay its output. Returns false, without
+     * side effects, when no daemon is listening so the caller can run the command itself.
+     */
+    public static boolean forward(Path socketPath, String[] args) {
+        if (!Files.exists(socketPath)) {
+            return false;
+        }
+
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            return false;
+        }
+
+        try (SocketChannel daemon = channel) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(daemon));
+            DataInputStream in = new DataInputStream(Channels.newInputStream(daemon));
+
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            while (true) {
+                byte type = in.readByte();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+
+                switch (type) {
+                    case OUTPUT:
+                        System.out.write(payload);
+                        System.out.flush();
+                        break;
+                    case ERROR:
+                        System.err.write(payload);
+                        System.err.flush();
+                        break;
+                    case PASSWORD:
+                        out.writeUTF(AuthenticationManager.readPassword());
+                        out.flush();
+                        break;
+                    case DONE:
+                        return true;
+                    default:
+                        throw new IOException("Unexpected frame from daemon: " + type);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Lost connection to daemon: " + e.getMessage());
+            return true;
+        }
+    }
+
+    private static boolean isRunning(Path socketPath) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void serve(GameService service, SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client));
+
+        String[] args;
+        try {
+            args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+        } catch (EOFException e) {
+            return;
+        }
+
+        PrintStream clientOut = new PrintStream(new FrameOutput(out, OUTPUT), true);
+        PrintStream clientErr = new PrintStream(new FrameOutput(out, ERROR), true);
+        try {
+            service.execute(args, clientOut, clientErr, () -> requestPassword(in, out));
+        } catch (RuntimeException e) {
+            clientErr.println("Error: " + e.getMessage());
+        }
+
+        writeFrame(out, DONE, new byte[0], 0, 0);
+    }
+
+    private static String requestPassword(DataInputStream in, DataOutputStream out) {
+        try {
+            writeFrame(out, PASSWORD, new byte[0], 0, 0);
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Client disconnected while entering a password", e);
+        }
+    }
+
+    private static void writeFrame(DataOutputStream out, byte type, byte[] payload, int off, int len) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(len);
+            out.write(payload, off, len);
+            out.flush();
+        }
+    }
+
+    private static class FrameOutput extends OutputStream {
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutput(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeFrame(out, type, b, off, len);
+        }
+    }
+}
\ No newline at end of file
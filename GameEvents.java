@@ -0,0 +1,176 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Java Flight Recorder events for commands, persistence, authentication and finished games,
+ * each tagged with the game and player so recordings can be filtered by game in JMC or with
+ *   jfr print --events crazyeights.FileIo recording.jfr
+ *
+ * Record with java -XX:StartFlightRecording=filename=recording.jfr Main ... (or jcmd JFR.start
+ * on a running daemon). While no recording is running the events are never committed and the
+ * fields are not even filled in, so the instrumentation costs next to nothing.
+ */
+public final class GameEvents {
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+
+    // The player the command running on this thread acts for; file events carry it too
+    private static final ThreadLocal<String> PLAYER = new ThreadLocal<>();
+
+    private GameEvents() {
+    }
+
+    @Name("crazyeights.Command")
+    @Label("Command")
+    @Category({"Crazy Eights", "Commands"})
+    @Description("One CommandHandler.execute dispatch")
+    @StackTrace(false)
+    static class CommandEvent extends Event {
+        @Label("Game")
+        String game;
+
+        @Label("Player")
+        String player;
+
+        @Label("Command")
+        String command;
+
+        @Label("Saved")
+        @Description("Whether the command persisted a change to the game")
+        boolean saved;
+    }
+
+    @Name("crazyeights.FileIo")
+    @Label("Game File I/O")
+    @Category({"Crazy Eights", "Persistence"})
+    @Description("A read or write of one game file")
+    @StackTrace(false)
+    static class FileIoEvent extends Event {
+        @Label("Game")
+        String game;
+
+        @Label("Player")
+        String player;
+
+        @Label("Path")
+        String path;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("crazyeights.Auth")
+    @Label("Authentication")
+    @Category({"Crazy Eights", "Security"})
+    @Description("A password check, including the hash")
+    @StackTrace(false)
+    static class AuthEvent extends Event {
+        @Label("Game")
+        String game;
+
+        @Label("Player")
+        String player;
+
+        @Label("Admin")
+        boolean admin;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("crazyeights.GameOver")
+    @Label("Game Over")
+    @Category({"Crazy Eights", "Games"})
+    @StackTrace(false)
+    static class GameOverEvent extends Event {
+        @Label("Game")
+        String game;
+
+        @Label("Winner")
+        String winner;
+
+        @Label("Moves")
+        int moves;
+
+        @Label("Players")
+        int players;
+    }
+
+    public static void setPlayer(String player) {
+        if (player == null) {
+            PLAYER.remove();
+        } else {
+            PLAYER.set(player);
+        }
+    }
+
+    public static CommandEvent beginCommand() {
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitCommand(CommandEvent event, String game, String command, boolean saved) {
+        if (event.shouldCommit()) {
+            event.game = game;
+            event.player = PLAYER.get();
+            event.command = command;
+            event.saved = saved;
+            event.commit();
+        }
+    }
+
+    public static FileIoEvent beginFileIo() {
+        FileIoEvent event = new FileIoEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitFileIo(FileIoEvent event, String game, String path, String operation, long bytes) {
+        if (event.shouldCommit()) {
+            event.game = game;
+            event.player = PLAYER.get();
+            event.path = path;
+            event.operation = operation;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    public static AuthEvent beginAuth() {
+        AuthEvent event = new AuthEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void commitAuth(AuthEvent event, String game, String player, boolean admin, boolean succeeded) {
+        if (event.shouldCommit()) {
+            event.game = game;
+            event.player = player;
+            event.admin = admin;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    public static void gameOver(Game game) {
+        GameOverEvent event = new GameOverEvent();
+        if (event.shouldCommit()) {
+            Player winner = game.getWinner();
+            event.game = game.getGameName();
+            event.winner = winner == null ? null : winner.getName();
+            event.moves = game.getMoveCount();
+            event.players = game.getPlayers().size();
+            event.commit();
+        }
+    }
+}
\ No newline at end of file
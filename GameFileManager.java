@@ -10,10 +10,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class GameFileManager {
-    private static final String USERS_FILE = "users.txt";
     private static final String DRAW_FILE = "draw.txt";
     private static final String DISCARD_FILE = "discard.txt";
     private static final String DRAWN_STATE_SUFFIX = "_drawn.txt";
+    private static final String SEED_FILE = "seed.txt";
+    private static final String TURNS_FILE = "turns.txt";
+    static final String SNAPSHOT_FILE = "game.bin";
     
     public static boolean createGameDirectory(String gameName) {
         File gameDir = new File(gameName);
@@ -29,11 +31,7 @@ public class GameFileManager {
     }
     
     public static void saveAdminCredentials(String gameName, String hashedPassword) throws IOException {
-        String usersFilePath = gameName + File.separator + USERS_FILE;
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(usersFilePath))) {
-            writer.write("admin," + hashedPassword);
-            writer.newLine();
-        }
+        UserStore.saveAdminCredentials(gameName, hashedPassword);
     }
     
     public static void addUser(String gameName, String username, String hashedPassword) throws IOException {
@@ -42,11 +40,7 @@ public class GameFileManager {
             throw new IOException("Username 'admin' is reserved and cannot be added manually.");
         }
         
-        String usersFilePath = gameName + File.separator + USERS_FILE;
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(usersFilePath, true))) {
-            writer.write(username + "," + hashedPassword);
-            writer.newLine();
-        }
+        UserStore.addUser(gameName, username, hashedPassword);
     }
     
     public static boolean removeUser(String gameName, String username) throws IOException {
@@ -54,186 +48,154 @@ public class GameFileManager {
             return false;
         }
         
-        String usersFilePath = gameName + File.separator + USERS_FILE;
-        List<String> lines = Files.readAllLines(Paths.get(usersFilePath));
-        
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(usersFilePath))) {
-            boolean found = false;
-            for (String line : lines) {
-                String[] parts = line.split(",");
-                if (parts.length == 2 && !parts[0].equals(username)) {
-                    writer.write(line);
-                    writer.newLine();
-                } else {
-                    found = true;
-                }
-            }
+        boolean found = UserStore.removeUser(gameName, username);
 
-            File handFile = new File(gameName + File.separator + username + ".txt");
-            if (handFile.exists()) {
-                handFile.delete();
-            }
-            
-            return found;
+        File handFile = new File(gameName + File.separator + username + ".txt");
+        if (handFile.exists()) {
+            handFile.delete();
         }
+        
+        return found;
     }
 
     public static List<String> getUsers(String gameName) throws IOException {
-        String usersFilePath = gameName + File.separator + USERS_FILE;
-        List<String> users = new ArrayList<>();
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(usersFilePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 2) {
-                    users.add(parts[0]);
-                }
-            }
-        }
-        
-        return users;
+        return UserStore.getUsers(gameName);
     }
     
 
     public static String getHashedPassword(String gameName, String username) throws IOException {
-        String usersFilePath = gameName + File.separator + USERS_FILE;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(usersFilePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 2 && parts[0].equals(username)) {
-                    return parts[1];
-                }
-            }
-        }
-        
-        return null;
+        return UserStore.getHashedPassword(gameName, username);
     }
     
     public static void savePlayerHand(String gameName, String username, List<String> cardCodes) throws IOException {
-        String playerFilePath = gameName + File.separator + username + ".txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(playerFilePath))) {
-            for (String code : cardCodes) {
-                writer.write(code);
-                writer.newLine();
-            }
-        }
+        writeLines(gameName, gameName + File.separator + username + ".txt", cardCodes);
     }
     
     public static List<String> loadPlayerHand(String gameName, String username) throws IOException {
-        String playerFilePath = gameName + File.separator + username + ".txt";
-        List<String> cardCodes = new ArrayList<>();
-        
-        File playerFile = new File(playerFilePath);
-        if (!playerFile.exists()) {
-            return cardCodes;
-        }
-
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(playerFilePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty()) {
-                    cardCodes.add(line);
-                }
-            }
-        }
-        
-        return cardCodes;
+        return readLines(gameName, gameName + File.separator + username + ".txt");
     }
     
 
     public static void saveDrawPile(String gameName, List<String> cardCodes) throws IOException {
-        String drawFilePath = gameName + File.separator + DRAW_FILE;
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(drawFilePath))) {
-            for (String code : cardCodes) {
-                writer.write(code);
-                writer.newLine();
-            }
-        }
+        writeLines(gameName, gameName + File.separator + DRAW_FILE, cardCodes);
     }
     
     public static List<String> loadDrawPile(String gameName) throws IOException {
-        String drawFilePath = gameName + File.separator + DRAW_FILE;
-        List<String> cardCodes = new ArrayList<>();
-        
-        File drawFile = new File(drawFilePath);
-        if (!drawFile.exists()) {
-            return cardCodes;
-        }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(drawFilePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty()) {
-                    cardCodes.add(line);
-                }
-            }
-        }
-        
-        return cardCodes;
+        return readLines(gameName, gameName + File.separator + DRAW_FILE);
     }
     
 
     public static void saveDiscardPile(String gameName, List<String> cardCodes) throws IOException {
-        String discardFilePath = gameName + File.separator + DISCARD_FILE;
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(discardFilePath))) {
-            for (String code : cardCodes) {
-                writer.write(code);
-                writer.newLine();
-            }
-        }
+        writeLines(gameName, gameName + File.separator + DISCARD_FILE, cardCodes);
     }
     
     public static List<String> loadDiscardPile(String gameName) throws IOException {
-        String discardFilePath = gameName + File.separator + DISCARD_FILE;
-        List<String> cardCodes = new ArrayList<>();
-        
-        File discardFile = new File(discardFilePath);
-        if (!discardFile.exists()) {
-            return cardCodes;
+        return readLines(gameName, gameName + File.separator + DISCARD_FILE);
+    }
+    
+    public static void savePlayerDrawnState(String gameName, String username, boolean hasDrawn) throws IOException {
+        writeLines(gameName, gameName + File.separator + username + DRAWN_STATE_SUFFIX, List.of(String.valueOf(hasDrawn)));
+    }
+    
+
+    public static boolean loadPlayerDrawnState(String gameName, String username) throws IOException {
+        List<String> lines = readLines(gameName, gameName + File.separator + username + DRAWN_STATE_SUFFIX);
+        return !lines.isEmpty() && Boolean.parseBoolean(lines.get(0));
+    }
+
+    // The seed file holds the shuffle algorithm on the first line and the seed on the second
+    public static void saveSeed(String gameName, String shuffleAlgorithm, long seed) throws IOException {
+        writeLines(gameName, gameName + File.separator + SEED_FILE, List.of(shuffleAlgorithm, String.valueOf(seed)));
+    }
+
+    // Returns {algorithm, seed}, or null for games started before seeds were recorded
+    public static String[] loadSeed(String gameName) throws IOException {
+        List<String> lines = readLines(gameName, gameName + File.separator + SEED_FILE);
+        if (lines.size() < 2) {
+            return null;
         }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(discardFilePath))) {
+        return new String[] {lines.get(0), lines.get(1)};
+    }
+
+    // The turns file holds the name of the player whose turn it is
+    public static void saveCurrentPlayer(String gameName, String username) throws IOException {
+        writeLines(gameName, gameName + File.separator + TURNS_FILE, List.of(username));
+    }
+
+    // Whether the game has been dealt in the text layout, which always writes a turns file
+    public static boolean hasTextLayout(String gameName) {
+        return new File(gameName + File.separator + TURNS_FILE).isFile();
+    }
+
+    // The current player's name, or null if the turns file is missing or empty
+    public static String loadCurrentPlayer(String gameName) throws IOException {
+        List<String> lines = readLines(gameName, gameName + File.separator + TURNS_FILE);
+        return lines.isEmpty() ? null : lines.get(0);
+    }
+
+    /*
+     * Every text file of the layout is one entry per line. Blank lines are skipped, entries are
+     * trimmed and a missing file reads as empty.
+     */
+    private static List<String> readLines(String gameName, String path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        File file = new File(path);
+        if (!file.exists()) {
+            return lines;
+        }
+
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        long bytes = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                bytes += line.length() + 1;
                 line = line.trim();
                 if (!line.isEmpty()) {
-                    cardCodes.add(line);
+                    lines.add(line);
                 }
             }
         }
-        
-        return cardCodes;
-    }
-    
-    public static void savePlayerDrawnState(String gameName, String username, boolean hasDrawn) throws IOException {
-        String drawnStateFilePath = gameName + File.separator + username + DRAWN_STATE_SUFFIX;
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(drawnStateFilePath))) {
-            writer.write(String.valueOf(hasDrawn));
-        }
+        CommandStats.read(path, bytes);
+        GameEvents.commitFileIo(event, gameName, path, GameEvents.READ, bytes);
+        return lines;
     }
-    
 
-    public static boolean loadPlayerDrawnState(String gameName, String username) throws IOException {
-        String drawnStateFilePath = gameName + File.separator + username + DRAWN_STATE_SUFFIX;
-        File drawnStateFile = new File(drawnStateFilePath);
-        
-        if (!drawnStateFile.exists()) {
-            return false;
-        }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(drawnStateFilePath))) {
-            String line = reader.readLine();
-            if (line != null && !line.isEmpty()) {
-                return Boolean.parseBoolean(line.trim());
+    private static void writeLines(String gameName, String path, List<String> lines) throws IOException {
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        long bytes = 0;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+                bytes += line.length() + 1;
             }
         }
-        
-        return false;
+        CommandStats.written(path, bytes);
+        GameEvents.commitFileIo(event, gameName, path, GameEvents.WRITE, bytes);
+    }
+
+    public static boolean hasSnapshot(String gameName) {
+        return new File(gameName + File.separator + SNAPSHOT_FILE).isFile();
+    }
+
+    public static void saveSnapshot(Game game) throws IOException {
+        GameSnapshot.write(Paths.get(game.getGameName(), SNAPSHOT_FILE), game);
+    }
+
+    public static Game loadSnapshot(String gameName) throws IOException {
+        return GameSnapshot.read(Paths.get(gameName, SNAPSHOT_FILE), gameName);
+    }
+
+    // Remove the per-player, pile, turn and seed files of the text layout once a game has a snapshot
+    public static void deleteTextLayout(String gameName, List<String> usernames) throws IOException {
+        for (String username : usernames) {
+            Files.deleteIfExists(Paths.get(gameName, username + ".txt"));
+            Files.deleteIfExists(Paths.get(gameName, username + DRAWN_STATE_SUFFIX));
+        }
+        Files.deleteIfExists(Paths.get(gameName, DRAW_FILE));
+        Files.deleteIfExists(Paths.get(gameName, DISCARD_FILE));
+        Files.deleteIfExists(Paths.get(gameName, TURNS_FILE));
+        Files.deleteIfExists(Paths.get(gameName, SEED_FILE));
     }
 }
\ No newline at end of file
@@ -0,0 +1,482 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/*
+ * Local HTTP/JSON front end to the engine, so frontends and bots can play without a JVM per
+ * move. Start it with
+ *   java Main --http [port]
+ * (default 8080, bound to the loopback interface). Parameters come from the query string or
+ * a form-encoded body; every response is JSON.
+ *
+ *   POST   /games/{game}/init      password                  create the game, setting the admin password
+ *   POST   /games/{game}/users     user, password            add a player (admin)
+ *   POST   /games/{game}/bots      user, strategy            add a computer player (admin)
+ *   DELETE /games/{game}/users/{user}                        remove a player (admin)
+ *   POST   /games/{game}/start     [seed]                    deal a new game (admin)
+ *   POST   /games/{game}/play      card
+ *   POST   /games/{game}/draw
+ *   POST   /games/{game}/pass
+ *   POST   /games/{game}/login     [ttl]                     returns a session token
+ *   POST   /games/{game}/logout
+ *   POST   /games/{game}/migrate                             (admin)
+ *   GET    /games/{game}/stats                               (admin)
+ *   GET    /games/{game}/cards     [player]
+ *   GET    /games/{game}/order
+ *
+ * Credentials go in the Authorization header: "Bearer <token>" with a token from login, or
+ * Basic with the player's (or, for admin endpoints, admin's) name and password. A player acts
+ * as the user the credentials name; a user parameter on their endpoints must name the same
+ * user. Tokens stored by a command line login are never used here.
+ *
+ * Commands run through GameService, one at a time per game, and answer with what the command
+ * printed plus the state of the game afterwards. cards and order are answered straight from
+ * the game held in memory; with the file store only file timestamps are checked, to notice
+ * moves made by other processes. Responses always carry a Content-Length and request bodies are read to the end,
+ * so connections stay open and pipelined requests are answered in order.
+ */
+public class GameHttpServer {
+    public static final int DEFAULT_PORT = 8080;
+
+    private final GameService service;
+
+    private GameHttpServer(GameService service) {
+        this.service = service;
+    }
+
+    public static void run(int port) throws IOException {
+        ConsoleRouter.install();
+        GameCache.setEnabled(true);
+        CommandStats.registerMBean();
+
+        GameService service = new GameService();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(GameService.newThreadPerTaskExecutor("http-"));
+        server.createContext("/games/", new GameHttpServer(service)::handle);
+        server.start();
+        System.out.println("Crazy Eights HTTP server listening on http://localhost:" + server.getAddress().getPort() + "/games/");
+    }
+
+    // A route's answer: status code and JSON body
+    private static class Response {
+        final int status;
+        final String json;
+
+        Response(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Response response;
+        try {
+            Map<String, String> params = parameters(exchange);
+            response = route(exchange, params);
+        } catch (CompletionException e) {
+            response = error(500, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            response = error(500, e.getMessage());
+        }
+
+        byte[] body = response.json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private Response route(HttpExchange exchange, Map<String, String> params) throws IOException {
+        // /games/{game}/{action}[/{user}]
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length < 4 || path.length > 5 || path[2].isEmpty()) {
+            return error(404, "Unknown endpoint: " + exchange.getRequestURI().getPath());
+        }
+        String gameName = path[2];
+        String action = path[3];
+        String method = exchange.getRequestMethod();
+        Credentials credentials = Credentials.of(exchange.getRequestHeaders().getFirst("Authorization"));
+        String user = credentials.user;
+
+        switch (action) {
+            case "play":
+            case "draw":
+            case "pass":
+            case "login":
+            case "logout":
+            case "cards":
+            case "order":
+                if (user == null) {
+                    return error(401, "Invalid user credentials.");
+                }
+                if (params.containsKey("user") && !params.get("user").equals(user)) {
+                    return error(403, "user=" + params.get("user") + " does not match the credentials.");
+                }
+                break;
+            default:
+                break;
+        }
+
+        if (path.length == 5) {
+            if (action.equals("users") && method.equals("DELETE")) {
+                return command(gameName, credentials.passwords(), "--remove-user", path[4]);
+            }
+            return error(404, "Unknown endpoint: " + exchange.getRequestURI().getPath());
+        }
+
+        switch (method + " " + action) {
+            case "POST init":
+                return command(gameName, passwords(params.getOrDefault("password", credentials.password)), "--init", "");
+            case "POST users":
+                return command(gameName, credentials.passwords(params.get("password")), "--add-user", params.get("user"));
+            case "POST bots":
+                return command(gameName, credentials.passwords(), "--add-bot", params.get("user"),
+                        "--strategy", params.getOrDefault("strategy", "greedy"));
+            case "POST start":
+                return command(gameName, credentials.passwords(), "--start", "", "--seed", params.get("seed"),
+                        "--token", credentials.token);
+            case "POST play":
+                return command(gameName, credentials.passwords(), "--play", params.get("card"), "--user", user,
+                        "--token", credentials.token);
+            case "POST draw":
+                return command(gameName, credentials.passwords(), "--draw", "", "--user", user, "--token", credentials.token);
+            case "POST pass":
+                return command(gameName, credentials.passwords(), "--pass", "", "--user", user, "--token", credentials.token);
+            case "POST login":
+                return login(gameName, user, params.get("ttl"), credentials);
+            case "POST logout":
+                return command(gameName, credentials.passwords(), "--logout", "", "--user", user, "--token", credentials.token);
+            case "POST migrate":
+                return command(gameName, credentials.passwords(), "--migrate", "", "--token", credentials.token);
+            case "GET stats":
+                return command(gameName, credentials.passwords(), "--stats", "", "--token", credentials.token);
+            case "GET cards":
+                return service.submit(gameName, () -> cards(gameName, user, params.getOrDefault("player", user), credentials)).join();
+            case "GET order":
+                return service.submit(gameName, () -> order(gameName, user, credentials)).join();
+            default:
+                return error(404, "Unknown endpoint: " + method + " " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    /*
+     * Run a CLI command on the game's mailbox, capturing what it prints. Options come in
+     * (flag, value) pairs; the first is the command itself, later ones are left out when their
+     * value was not given, as if not typed on the command line.
+     */
+    private Response command(String gameName, Deque<String> passwords, String... options) throws IOException {
+        List<String> args = new ArrayList<>();
+        args.add("--game");
+        args.add(gameName);
+        for (int i = 0; i + 1 < options.length; i += 2) {
+            String value = options[i + 1];
+            if (i > 0 && value == null) {
+                continue;
+            }
+            args.add(options[i]);
+            if (value != null && !value.isEmpty()) {
+                args.add(value);
+            }
+        }
+
+        Capture out = new Capture();
+        Capture err = new Capture();
+        // Read on the mailbox, so it is the game as this command left it
+        StringBuilder state = new StringBuilder();
+        service.execute(args.toArray(new String[0]), out.stream, err.stream, () -> {
+            // The prompt the command printed is not part of the answer
+            out.dropLastLine();
+            return passwords.isEmpty() ? "" : passwords.poll();
+        }, () -> {
+            Game game = GameStores.get().getCachedGame(gameName);
+            if (game != null) {
+                state.append(",\"game\":");
+                appendGame(state, game);
+            }
+            return null;
+        });
+
+        List<String> errors = err.lines();
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"ok\":").append(errors.isEmpty());
+        json.append(",\"output\":");
+        appendStrings(json, out.lines());
+        json.append(",\"errors\":");
+        appendStrings(json, errors);
+        json.append(state).append('}');
+        return new Response(errors.isEmpty() ? 200 : 400, json.toString());
+    }
+
+    // Same checks as --login, but the token comes back as a field of its own
+    private static Response login(String gameName, String user, String ttl, Credentials credentials) throws IOException {
+        long minutes = SessionManager.DEFAULT_TTL_MINUTES;
+        if (ttl != null) {
+            try {
+                minutes = Long.parseLong(ttl);
+            } catch (NumberFormatException e) {
+                minutes = 0;
+            }
+            if (minutes <= 0) {
+                return error(400, "Invalid session length: " + ttl + " (minutes)");
+            }
+        }
+        // A login always takes the password, never an older token
+        if (credentials.password == null || !GameStores.get().gameExists(gameName)
+                || !AuthenticationManager.authenticateUser(gameName, user, credentials.password)) {
+            return error(401, "Invalid user credentials.");
+        }
+
+        String token = SessionManager.login(gameName, user, minutes);
+        return new Response(200, "{\"ok\":true,\"user\":" + quote(user) + ",\"minutes\":" + minutes
+                + ",\"token\":" + quote(token) + "}");
+    }
+
+    private Response cards(String gameName, String user, String player, Credentials credentials) throws IOException {
+        if (!authenticate(gameName, user, credentials)) {
+            return error(401, "Invalid user credentials.");
+        }
+        if (!user.equals(player) && !user.equals("admin")) {
+            return error(403, "You are not authorized to view other players' cards.");
+        }
+
+        Game game = game(gameName);
+        if (game == null) {
+            return error(404, "Game '" + gameName + "' has not been started.");
+        }
+        Player owner = game.getPlayerByName(player);
+        if (owner == null) {
+            return error(404, "Player '" + player + "' not found.");
+        }
+
+        Card top = game.getTopDiscard();
+        long playable = owner.getHandMask() & Rules.legalResponses(top);
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"player\":").append(quote(player)).append(",\"cards\":[");
+        List<Card> hand = owner.getHand();
+        for (int i = 0; i < hand.size(); i++) {
+            Card card = hand.get(i);
+            json.append(i == 0 ? "" : ",").append("{\"code\":").append(quote(card.getCode()))
+                    .append(",\"name\":").append(quote(card.toString()))
+                    .append(",\"playable\":").append(Hand.contains(playable, card)).append('}');
+        }
+        json.append("],\"game\":");
+        appendGame(json, game);
+        json.append('}');
+        return new Response(200, json.toString());
+    }
+
+    private Response order(String gameName, String user, Credentials credentials) throws IOException {
+        if (!authenticate(gameName, user, credentials)) {
+            return error(401, "Invalid user credentials.");
+        }
+
+        Game game = game(gameName);
+        if (game == null) {
+            return error(404, "Game '" + gameName + "' has not been started.");
+        }
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"order\":");
+        appendStrings(json, game.getTurnOrder());
+        json.append(",\"game\":");
+        appendGame(json, game);
+        json.append('}');
+        return new Response(200, json.toString());
+    }
+
+    private static boolean authenticate(String gameName, String user, Credentials credentials) {
+        if (!GameStores.get().gameExists(gameName)) {
+            return false;
+        }
+        if (credentials.token != null) {
+            return AuthenticationManager.authenticateSession(gameName, user, credentials.token);
+        }
+        return credentials.password != null && AuthenticationManager.authenticateUser(gameName, user, credentials.password);
+    }
+
+    // The game as held in memory, loading it only if it is not cached or has changed since
+    private static Game game(String gameName) throws IOException {
+        Game game = GameStores.get().getCachedGame(gameName);
+        if (game != null) {
+            return game;
+        }
+        if (!GameStores.get().isStarted(gameName)) {
+            return null;
+        }
+        return new CommandHandler(new String[] {"--cards", "--game", gameName}).readGame();
+    }
+
+    private static void appendGame(StringBuilder json, Game game) {
+        Card top = game.getTopDiscard();
+        Player winner = game.isGameOver() ? game.getWinner() : null;
+        json.append("{\"currentPlayer\":").append(quote(game.getCurrentPlayer().getName()))
+                .append(",\"topCard\":").append(top == null ? "null" : quote(top.getCode()))
+                .append(",\"drawPile\":").append(game.getDrawPile().size())
+                .append(",\"moves\":").append(game.getMoveCount())
+                .append(",\"gameOver\":").append(game.isGameOver())
+                .append(",\"winner\":").append(winner == null ? "null" : quote(winner.getName()))
+                .append('}');
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, "{\"ok\":false,\"errors\":[" + quote(String.valueOf(message)) + "]}");
+    }
+
+    private static void appendStrings(StringBuilder json, List<String> values) {
+        json.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(quote(values.get(i)));
+        }
+        json.append(']');
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static Deque<String> passwords(String... values) {
+        Deque<String> queue = new ArrayDeque<>();
+        for (String value : values) {
+            if (value != null) {
+                queue.add(value);
+            }
+        }
+        return queue;
+    }
+
+    // Query string and form body together; the body is always read to the end for the next request
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            String type = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (type == null || type.startsWith("application/x-www-form-urlencoded")) {
+                parseForm(body, params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    // What the Authorization header carries
+    private static class Credentials {
+        final String user;
+        final String password;
+        final String token;
+
+        private Credentials(String user, String password, String token) {
+            this.user = user;
+            this.password = password;
+            this.token = token;
+        }
+
+        static Credentials of(String header) {
+            if (header == null) {
+                return new Credentials(null, null, null);
+            }
+            if (header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                String token = header.substring(7).trim();
+                return new Credentials(SessionManager.userOf(token), null, token);
+            }
+            if (header.regionMatches(true, 0, "Basic ", 0, 6)) {
+                try {
+                    String decoded = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+                    int colon = decoded.indexOf(':');
+                    if (colon >= 0) {
+                        return new Credentials(decoded.substring(0, colon), decoded.substring(colon + 1), null);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Treated as no credentials
+                }
+            }
+            return new Credentials(null, null, null);
+        }
+
+        // Answers to the command's password prompts, in the order it asks
+        Deque<String> passwords(String... more) {
+            Deque<String> queue = GameHttpServer.passwords(password);
+            queue.addAll(GameHttpServer.passwords(more));
+            return queue;
+        }
+    }
+
+    // Console output of one command, split into lines
+    private static class Capture {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final PrintStream stream = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+
+        synchronized void dropLastLine() {
+            String text = bytes.toString(StandardCharsets.UTF_8);
+            int end = text.endsWith("\n") ? text.length() - 1 : text.length();
+            int start = text.lastIndexOf('\n', end - 1) + 1;
+            byte[] kept = text.substring(0, start).getBytes(StandardCharsets.UTF_8);
+            bytes.reset();
+            bytes.write(kept, 0, kept.length);
+        }
+
+        synchronized List<String> lines() {
+            List<String> lines = new ArrayList<>();
+            for (String line : bytes.toString(StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isBlank()) {
+                    lines.add(line.strip());
+                }
+            }
+            return lines;
+        }
+    }
+}
\ No newline at end of file
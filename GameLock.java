@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Per-game lock held from loading a game until the command is done with it, so commands from
+ * separate processes (and from the daemon's threads) cannot interleave a load and a save.
+ * Moves take it exclusively; commands that only look at the game share it.
+ *
+ * The lock is an OS file lock on <game>/game.lock, which also holds the game's state version:
+ * a long that every save increments. A command remembers the version it loaded and a save is
+ * refused with StaleStateException if the version has moved on, which catches writers that
+ * did not take the lock.
+ *
+ * Games of a store that is not persistent (see GameStore) exist in this process only; their
+ * lock and version are kept in memory and no file is made for them.
+ *
+ * File locks belong to the whole process, so threads of one process first coordinate through
+ * a read-write lock, and the readers of a game share a single shared file lock. A thread that
+ * already holds a game exclusively may lock it again, exclusively or shared, and the locks may
+ * be closed in any order: the file lock stays until the last of them is closed. Shared locks
+ * still open when the exclusive ones are gone join the game's readers, keeping the (exclusive)
+ * file lock for them until the last reader closes.
+ */
+public final class GameLock implements AutoCloseable {
+    static final String LOCK_FILE = "game.lock";
+
+    private static final Map<String, Holder> HOLDERS = new ConcurrentHashMap<>();
+
+    private static class Holder {
+        final ReentrantReadWriteLock threads = new ReentrantReadWriteLock();
+        FileChannel channel;
+        FileLock fileLock;
+        int readers;
+        // Shared locks taken by the thread holding the game exclusively
+        int nestedReaders;
+        // The state version of a game that is not persistent
+        long version;
+    }
+
+    private final String gameName;
+    private final Holder holder;
+    private final boolean shared;
+    // Taken while this thread already held the game exclusively
+    private final boolean nested;
+    private boolean closed;
+
+    private GameLock(String gameName, Holder holder, boolean shared, boolean nested) {
+        this.gameName = gameName;
+        this.holder = holder;
+        this.shared = shared;
+        this.nested = nested;
+    }
+
+    // Block until this thread holds the game exclusively
+    public static GameLock exclusive(String gameName) throws IOException {
+        Holder holder = HOLDERS.computeIfAbsent(gameName, name -> new Holder());
+        if (holder.threads.isWriteLockedByCurrentThread()) {
+            holder.threads.writeLock().lock();
+            return new GameLock(gameName, holder, false, true);
+        }
+        holder.threads.writeLock().lock();
+        try {
+            synchronized (holder) {
+                lockFile(gameName, holder, false);
+            }
+        } catch (IOException | RuntimeException e) {
+            holder.threads.writeLock().unlock();
+            throw e;
+        }
+        return new GameLock(gameName, holder, false, false);
+    }
+
+    // Block until no one holds the game exclusively; other shared holders are let in
+    public static GameLock shared(String gameName) throws IOException {
+        Holder holder = HOLDERS.computeIfAbsent(gameName, name -> new Holder());
+        if (holder.threads.isWriteLockedByCurrentThread()) {
+            holder.threads.readLock().lock();
+            synchronized (holder) {
+                holder.nestedReaders++;
+            }
+            return new GameLock(gameName, holder, true, true);
+        }
+        holder.threads.readLock().lock();
+        try {
+            synchronized (holder) {
+                if (holder.readers == 0) {
+                    lockFile(gameName, holder, true);
+                }
+                holder.readers++;
+            }
+        } catch (IOException | RuntimeException e) {
+            holder.threads.readLock().unlock();
+            throw e;
+        }
+        return new GameLock(gameName, holder, true, false);
+    }
+
+    private static void lockFile(String gameName, Holder holder, boolean shared) throws IOException {
+        if (!GameStores.get().isPersistent()) {
+            return;
+        }
+        Files.createDirectories(Paths.get(gameName));
+        FileChannel channel = FileChannel.open(Paths.get(gameName, LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            holder.fileLock = channel.lock(0, Long.MAX_VALUE, shared);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        holder.channel = channel;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    // The version of the game's saved state; 0 until the first save under a lock
+    public long readVersion() throws IOException {
+        if (holder.channel == null) {
+            return holder.version;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (holder.channel.read(buffer, buffer.position()) < 0) {
+                return 0;
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    // Fail unless the saved state is still at the version the caller loaded
+    public void checkVersion(long expected) throws IOException {
+        long actual = readVersion();
+        if (actual != expected) {
+            throw new StaleStateException(gameName, expected, actual);
+        }
+    }
+
+    // Record that the state has been saved again, returning the new version
+    public long bumpVersion() throws IOException {
+        if (shared) {
+            throw new IllegalStateException("Saving game '" + gameName + "' needs an exclusive lock");
+        }
+        long next = readVersion() + 1;
+        if (holder.channel == null) {
+            holder.version = next;
+            return next;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, next);
+        while (buffer.hasRemaining()) {
+            holder.channel.write(buffer, buffer.position());
+        }
+        return next;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            synchronized (holder) {
+                boolean release;
+                if (!shared) {
+                    // The last exclusive hold hands the file lock to its open shared locks, if any
+                    boolean lastExclusive = holder.threads.getWriteHoldCount() == 1;
+                    release = lastExclusive && holder.nestedReaders == 0;
+                    if (lastExclusive) {
+                        holder.readers += holder.nestedReaders;
+                        holder.nestedReaders = 0;
+                    }
+                } else if (nested && holder.threads.isWriteLockedByCurrentThread()) {
+                    holder.nestedReaders--;
+                    release = false;
+                } else {
+                    release = --holder.readers == 0;
+                }
+                if (release && holder.channel != null) {
+                    FileChannel channel = holder.channel;
+                    holder.channel = null;
+                    holder.fileLock = null;
+                    // Closing the channel releases the file lock
+                    channel.close();
+                }
+            }
+        } finally {
+            if (shared) {
+                holder.threads.readLock().unlock();
+            } else {
+                holder.threads.writeLock().unlock();
+            }
+        }
+    }
+}
\ No newline at end of file
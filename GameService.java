@@ -0,0 +1,195 @@
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * In-process engine for many tables at once. Every game gets a mailbox: tasks posted to it run
+ * one at a time, in order, so a Game is only ever touched by one thread at a time, while
+ * different games run side by side on the worker threads.
+ *
+ * A mailbox holds no thread of its own. Posting to an idle mailbox schedules it on the
+ * workers, where it runs up to BATCH tasks and then yields its worker, so a busy game cannot
+ * starve the rest. A mailbox that runs out of tasks is dropped, so idle games (and names
+ * of games that do not exist) cost nothing.
+ *
+ * Connections and workers use virtual threads when the JVM has them (Java 21 and later).
+ * Otherwise connections get a cached pool and games share one worker per core.
+ */
+public class GameService implements AutoCloseable {
+    private static final int BATCH = 64;
+    // Looked up reflectively so the code still compiles and runs on Java 17
+    private static final Method VIRTUAL_FACTORY = findVirtualFactory();
+
+    private final ExecutorService workers;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    public GameService() {
+        this(newVirtualThreadExecutor());
+    }
+
+    private GameService(ExecutorService virtualThreads) {
+        this.workers = virtualThreads != null ? virtualThreads
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemonThreads("game-worker-"));
+    }
+
+    // The tasks of one game, run in the order they were posted
+    private final class Mailbox implements Runnable {
+        private final String gameName;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Mailbox(String gameName) {
+            this.gameName = gameName;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                workers.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            for (int i = 0; i < BATCH && (task = tasks.poll()) != null; i++) {
+                task.run();
+            }
+            scheduled.set(false);
+            // Tasks are only added inside compute (see submit), so an empty mailbox removed
+            // here gets no more of them; a later task starts a new mailbox
+            mailboxes.computeIfPresent(gameName, (name, mailbox) -> mailbox == this && tasks.isEmpty() ? null : mailbox);
+            // A task posted after the last poll but before the flag was cleared still needs a run
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    // Run a task on the game's mailbox; the future completes with its result or its exception
+    public <T> CompletableFuture<T> submit(String gameName, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable run = () -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        };
+        mailboxes.compute(gameName, (name, current) -> {
+            Mailbox mailbox = current != null ? current : new Mailbox(name);
+            mailbox.tasks.add(run);
+            return mailbox;
+        }).schedule();
+        return result;
+    }
+
+    /*
+     * Run a command line as the daemon would, with console output and password prompts going to
+     * the given route. The caller's thread asks for credentials, so a player typing a password
+     * does not hold up their table; the command itself then waits its turn on the game.
+     */
+    public void execute(String[] args, PrintStream out, PrintStream err, Supplier<String> passwords) {
+        execute(args, out, err, passwords, null);
+    }
+
+    // As above, running afterwards on the game's mailbox once the command is done, if it ran there
+    public void execute(String[] args, PrintStream out, PrintStream err, Supplier<String> passwords, Callable<?> afterwards) {
+        ConsoleRouter.route(out, err, passwords);
+        try {
+            CommandHandler handler = new CommandHandler(args);
+            String gameName = handler.getGameName();
+            if (gameName == null) {
+                handler.execute();
+                return;
+            }
+            if (!handler.preauthenticate()) {
+                return;
+            }
+
+            submit(gameName, () -> {
+                ConsoleRouter.route(out, err, passwords);
+                try {
+                    handler.execute();
+                } finally {
+                    ConsoleRouter.clear();
+                }
+                if (afterwards != null) {
+                    afterwards.call();
+                }
+                return null;
+            }).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            ConsoleRouter.clear();
+        }
+    }
+
+    public int getGameCount() {
+        return mailboxes.size();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A thread per task: virtual threads where available, otherwise a pool of daemon threads
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        return virtualThreads != null ? virtualThreads : Executors.newCachedThreadPool(daemonThreads(name));
+    }
+
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    private static Method findVirtualFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (VIRTUAL_FACTORY == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) VIRTUAL_FACTORY.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
\ No newline at end of file
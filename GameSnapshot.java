@@ -0,0 +1,154 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Versioned binary snapshot of a whole Game, stored in a single file.
+ *
+ * Layout (big-endian):
+ *   int    magic "CE8S"
+ *   byte   format version
+ *   byte   flags (bit 0: reverse direction, bit 1: game over)
+ *   byte   current player index
+ *   byte   player count
+ *   long   shuffle seed
+ *   int    move count (version 2 and later; the journal continues from here)
+ *   UTF    shuffle algorithm
+ *   per player: UTF name, byte drawn flag, long hand mask
+ *   short  draw pile size, then one ordinal byte per card, top first
+ *   short  discard pile size, then one ordinal byte per card, bottom first
+ */
+public class GameSnapshot {
+    private static final int MAGIC = 0x43453853;
+    static final int FORMAT_VERSION = 2;
+
+    private static final int FLAG_REVERSE = 1;
+    private static final int FLAG_GAME_OVER = 2;
+
+    public static byte[] encode(Game game) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<Player> players = game.getPlayers();
+
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte((game.isReverseDirection() ? FLAG_REVERSE : 0) | (game.isGameOver() ? FLAG_GAME_OVER : 0));
+        out.writeByte(game.getCurrentPlayerIndex());
+        out.writeByte(players.size());
+        out.writeLong(game.getSeed());
+        out.writeInt(game.getMoveCount());
+        out.writeUTF(game.getShuffleAlgorithm());
+
+        for (Player player : players) {
+            out.writeUTF(player.getName());
+            out.writeBoolean(player.hasDrawnThisTurn());
+            out.writeLong(player.getHandMask());
+        }
+
+        writePile(out, game.getDrawPile());
+        writePile(out, game.getDiscardPile());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static Game decode(String gameName, byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a game snapshot");
+        }
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+
+        int flags = in.readUnsignedByte();
+        int currentPlayerIndex = in.readUnsignedByte();
+        int playerCount = in.readUnsignedByte();
+        if (playerCount < 1 || playerCount > GameState.MAX_PLAYERS) {
+            throw new IOException("Corrupt snapshot: " + playerCount + " players");
+        }
+        if (currentPlayerIndex >= playerCount) {
+            throw new IOException("Corrupt snapshot: current player " + currentPlayerIndex + " of " + playerCount);
+        }
+        long seed = in.readLong();
+        int moveCount = version >= 2 ? in.readInt() : 0;
+        String shuffleAlgorithm = in.readUTF();
+
+        List<String> names = new ArrayList<>(playerCount);
+        boolean[] drawn = new boolean[playerCount];
+        long[] hands = new long[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            names.add(in.readUTF());
+            drawn[i] = in.readBoolean();
+            hands[i] = in.readLong();
+        }
+
+        Game game = new Game(gameName, names, new Deck(new ArrayList<>()));
+        List<Player> players = game.getPlayers();
+        for (int i = 0; i < playerCount; i++) {
+            Player player = players.get(i);
+            for (Card card : Hand.toCards(hands[i])) {
+                player.addCard(card);
+            }
+            player.setHasDrawnThisTurn(drawn[i]);
+        }
+
+        readPile(in, game.getDrawPile());
+        readPile(in, game.getDiscardPile());
+        game.setSeed(shuffleAlgorithm, seed);
+        game.setMoveCount(moveCount);
+        game.restoreTurn(currentPlayerIndex, (flags & FLAG_REVERSE) != 0, (flags & FLAG_GAME_OVER) != 0);
+        return game;
+    }
+
+    // Write the snapshot to a temporary file next to the target, then rename it into place
+    public static void write(Path file, Game game) throws IOException {
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        byte[] data = encode(game);
+        Files.write(temp, data);
+        CommandStats.written(file.toString(), data.length);
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        GameEvents.commitFileIo(event, game.getGameName(), file.toString(), GameEvents.WRITE, data.length);
+    }
+
+    public static Game read(Path file, String gameName) throws IOException {
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        byte[] data = Files.readAllBytes(file);
+        CommandStats.read(file.toString(), data.length);
+        GameEvents.commitFileIo(event, gameName, file.toString(), GameEvents.READ, data.length);
+        return decode(gameName, data);
+    }
+
+    private static void writePile(DataOutputStream out, Deck pile) throws IOException {
+        List<Card> cards = pile.getCards();
+        out.writeShort(cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            out.writeByte(cards.get(i).getOrdinal());
+        }
+    }
+
+    private static void readPile(DataInputStream in, Deck pile) throws IOException {
+        int size = in.readUnsignedShort();
+        for (int i = 0; i < size; i++) {
+            int ordinal = in.readUnsignedByte();
+            if (ordinal >= Card.CARD_COUNT) {
+                throw new IOException("Corrupt snapshot: card ordinal " + ordinal);
+            }
+            pile.addCard(Card.of(ordinal));
+        }
+    }
+}
\ No newline at end of file
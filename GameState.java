@@ -0,0 +1,408 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/*
+ * The whole position of a game as primitives: a card mask per hand, a bit per seat for "has
+ * drawn this turn", the two piles and the turn pointer. Game and Player are views over one of
+ * these, and search copies it with copyInto and walks it with applyMove/undoMove, none of which
+ * allocate once the target's arrays are big enough.
+ */
+public final class GameState {
+    // The drawn flags are kept in one int and a seat index in a byte of the undo record
+    public static final int MAX_PLAYERS = 16;
+
+    private static final int INITIAL_HISTORY = 256;
+
+    // Undo record layout: move (bits 0-7), mover (8-15), drawn flags before the move (16-31),
+    // game over before the move (32), draw pile refilled (33), card drawn (40-47)
+    private static final long WAS_OVER = 1L << 32;
+    private static final long REFILLED = 1L << 33;
+    private static final long DREW_CARD = 1L << 34;
+
+    // Dirty mask layout: hand of each seat (bits 0-15), drawn flag of each seat (16-31), turn (32)
+    private static final int DRAWN_DIRTY = 16;
+    private static final long SEAT_DIRTY = 1L | 1L << DRAWN_DIRTY;
+    private static final long TURN_DIRTY = 1L << 32;
+
+    private int playerCount;
+    private long[] hands;
+    private int drawnFlags;
+    private final Deck drawPile;
+    private final Deck discardPile;
+    private int currentPlayer;
+    private boolean reverseDirection;
+    private boolean gameOver;
+    // House rule: refill an empty draw pile from the discards instead of ending the game
+    private boolean reshuffleDiscards;
+    // Number of moves made; with the seed it also seeds the shuffle of a refilled draw pile
+    private int moveCount;
+    private long seed;
+    // What changed since the last clearDirty, so a save can write only those pieces; the piles track their own
+    private long dirty = -1L;
+
+    private long[] history = new long[INITIAL_HISTORY];
+    private int historySize;
+    private final byte[] scratch = new byte[Card.CARD_COUNT];
+
+    public GameState(int playerCount) {
+        this(playerCount, new Deck(Collections.emptyList()), new Deck(Collections.emptyList()));
+    }
+
+    public GameState(int playerCount, Deck drawPile, Deck discardPile) {
+        if (playerCount < 1 || playerCount > MAX_PLAYERS) {
+            throw new IllegalArgumentException("A game has 1 to " + MAX_PLAYERS + " players: " + playerCount);
+        }
+        this.playerCount = playerCount;
+        this.hands = new long[playerCount];
+        this.drawPile = drawPile;
+        this.discardPile = discardPile;
+    }
+
+    /*
+     * A full state consistent with what the observer can see. The unseen cards go to the
+     * opponents and the draw pile in ordinal order; call determinize to deal them at random.
+     */
+    public static GameState fromView(PlayerView view) {
+        GameState state = new GameState(view.getPlayerCount());
+        long unseen = view.getUnseenCards();
+        for (int seat = 0; seat < state.playerCount; seat++) {
+            if (seat == view.getSeat()) {
+                state.hands[seat] = view.getHand();
+                continue;
+            }
+            for (int i = 0; i < view.getHandSize(seat) && unseen != 0; i++) {
+                state.hands[seat] |= Long.lowestOneBit(unseen);
+                unseen &= unseen - 1;
+            }
+        }
+        for (; unseen != 0; unseen &= unseen - 1) {
+            state.drawPile.addCard(Card.of(Long.numberOfTrailingZeros(unseen)));
+        }
+
+        Card top = view.getTopDiscard();
+        for (long remaining = view.getDiscards() & ~Hand.bit(top); remaining != 0; remaining &= remaining - 1) {
+            state.discardPile.addCard(Card.of(Long.numberOfTrailingZeros(remaining)));
+        }
+        state.discardPile.addCard(top);
+
+        state.currentPlayer = view.getSeat();
+        state.reverseDirection = view.isReverseDirection();
+        state.setDrawn(view.getSeat(), view.hasDrawnThisTurn());
+        return state;
+    }
+
+    // Make target an exact copy of this position, without the undo history
+    public void copyInto(GameState target) {
+        if (target.hands.length < playerCount) {
+            target.hands = new long[playerCount];
+        }
+        System.arraycopy(hands, 0, target.hands, 0, playerCount);
+        drawPile.copyInto(target.drawPile);
+        discardPile.copyInto(target.discardPile);
+        target.playerCount = playerCount;
+        target.drawnFlags = drawnFlags;
+        target.currentPlayer = currentPlayer;
+        target.reverseDirection = reverseDirection;
+        target.gameOver = gameOver;
+        target.reshuffleDiscards = reshuffleDiscards;
+        target.moveCount = moveCount;
+        target.seed = seed;
+        target.historySize = 0;
+        target.dirty = -1L;
+    }
+
+    /*
+     * Redeal every card the observer cannot see: the opponents' hands and the draw pile are
+     * shuffled together and dealt back out in the same sizes.
+     */
+    public void determinize(int observer, RandomGenerator random) {
+        int unseen = 0;
+        for (int seat = 0; seat < playerCount; seat++) {
+            if (seat == observer) {
+                continue;
+            }
+            for (long remaining = hands[seat]; remaining != 0; remaining &= remaining - 1) {
+                scratch[unseen++] = (byte) Long.numberOfTrailingZeros(remaining);
+            }
+        }
+        for (int i = 0; i < drawPile.size(); i++) {
+            scratch[unseen++] = (byte) drawPile.ordinalAt(i);
+        }
+
+        for (int i = unseen - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte swap = scratch[i];
+            scratch[i] = scratch[j];
+            scratch[j] = swap;
+        }
+
+        int next = 0;
+        for (int seat = 0; seat < playerCount; seat++) {
+            if (seat == observer) {
+                continue;
+            }
+            int size = Long.bitCount(hands[seat]);
+            hands[seat] = Hand.EMPTY;
+            for (int i = 0; i < size; i++) {
+                hands[seat] |= Hand.bit(scratch[next++]);
+            }
+        }
+        drawPile.clear();
+        while (next < unseen) {
+            drawPile.addCard(Card.of(scratch[next++]));
+        }
+        dirty = -1L;
+    }
+
+    // Legal moves for the player whose turn it is, as a mask of Move indexes; none once the game is over
+    public long legalMoves() {
+        if (gameOver) {
+            return 0;
+        }
+        return Rules.legalMoves(hands[currentPlayer], discardPile.peekBottom(), isDrawn(currentPlayer));
+    }
+
+    /*
+     * Make a legal move for the player whose turn it is and remember how to undo it. Returns the
+     * ordinal of the card drawn for a draw (-1 when there was nothing left to draw, which ends
+     * the game) and the move index otherwise.
+     */
+    public int applyMove(int move) {
+        int seat = currentPlayer;
+        long record = move | (long) seat << 8 | (long) drawnFlags << 16 | (gameOver ? WAS_OVER : 0);
+        int result = move;
+        long changed = SEAT_DIRTY << seat;
+
+        if (move < Card.CARD_COUNT) {
+            hands[seat] &= ~Hand.bit(move);
+            discardPile.addCard(Card.of(move));
+            if (hands[seat] == Hand.EMPTY || !canDraw()) {
+                gameOver = true;
+            } else {
+                nextTurn();
+            }
+        } else if (move == Move.DRAW_INDEX) {
+            if (drawPile.isEmpty() && canDraw()) {
+                refillDrawPile();
+                record |= REFILLED;
+            }
+            Card card = drawPile.drawCard();
+            if (card == null) {
+                gameOver = true;
+                result = -1;
+            } else {
+                hands[seat] |= Hand.bit(card);
+                drawnFlags |= 1 << seat;
+                record |= DREW_CARD | (long) card.getOrdinal() << 40;
+                result = card.getOrdinal();
+            }
+        } else {
+            nextTurn();
+        }
+
+        dirty |= move == Move.DRAW_INDEX && !gameOver ? changed : changed | TURN_DIRTY;
+        moveCount++;
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, historySize * 2);
+        }
+        history[historySize++] = record;
+        return result;
+    }
+
+    // Take back the most recent applyMove
+    public void undoMove() {
+        if (historySize == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        long record = history[--historySize];
+        int move = (int) (record & 0xFF);
+        int seat = (int) (record >>> 8 & 0xFF);
+        dirty |= SEAT_DIRTY << seat | TURN_DIRTY;
+
+        if (move < Card.CARD_COUNT) {
+            discardPile.removeBottom();
+            hands[seat] |= Hand.bit(move);
+        } else if (move == Move.DRAW_INDEX) {
+            if ((record & DREW_CARD) != 0) {
+                int ordinal = (int) (record >>> 40 & 0xFF);
+                hands[seat] &= ~Hand.bit(ordinal);
+                drawPile.addCardToTop(Card.of(ordinal));
+            }
+            if ((record & REFILLED) != 0) {
+                // Put the refilled cards back under the top discard; their old order is not needed
+                Card top = discardPile.removeBottom();
+                while (!drawPile.isEmpty()) {
+                    discardPile.addCard(drawPile.drawCard());
+                }
+                discardPile.addCard(top);
+            }
+        }
+
+        currentPlayer = seat;
+        drawnFlags = (int) (record >>> 16 & 0xFFFF);
+        gameOver = (record & WAS_OVER) != 0;
+        moveCount--;
+    }
+
+    // Forget the undo history; Game does this after every move since it never takes one back
+    public void clearHistory() {
+        historySize = 0;
+    }
+
+    // Whether a draw can find a card, possibly after refilling the pile from the discards
+    public boolean canDraw() {
+        return !drawPile.isEmpty() || (reshuffleDiscards && discardPile.size() > 1);
+    }
+
+    // Seat of the winner: whoever emptied their hand, otherwise the fewest points (earliest seat on a tie)
+    public int getWinner() {
+        int winner = 0;
+        int lowestPoints = Integer.MAX_VALUE;
+        for (int seat = 0; seat < playerCount; seat++) {
+            if (hands[seat] == Hand.EMPTY) {
+                return seat;
+            }
+            int points = Hand.points(hands[seat]);
+            if (points < lowestPoints) {
+                lowestPoints = points;
+                winner = seat;
+            }
+        }
+        return winner;
+    }
+
+    private void nextTurn() {
+        drawnFlags &= ~(1 << currentPlayer);
+        currentPlayer = Rules.getNextPlayerIndex(currentPlayer, playerCount, reverseDirection);
+    }
+
+    // Move every discard except the top card back into the draw pile and shuffle it
+    private void refillDrawPile() {
+        Card top = discardPile.removeBottom();
+        while (!discardPile.isEmpty()) {
+            drawPile.addCard(discardPile.drawCard());
+        }
+        discardPile.addCard(top);
+        drawPile.shuffle(new SplittableRandom(seed + moveCount));
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public long getHand(int seat) {
+        return hands[seat];
+    }
+
+    public void setHand(int seat, long hand) {
+        hands[seat] = hand;
+        dirty |= 1L << seat;
+    }
+
+    public boolean isDrawn(int seat) {
+        return (drawnFlags & (1 << seat)) != 0;
+    }
+
+    public void setDrawn(int seat, boolean drawn) {
+        if (drawn) {
+            drawnFlags |= 1 << seat;
+        } else {
+            drawnFlags &= ~(1 << seat);
+        }
+        dirty |= 1L << (DRAWN_DIRTY + seat);
+    }
+
+    public Deck getDrawPile() {
+        return drawPile;
+    }
+
+    public Deck getDiscardPile() {
+        return discardPile;
+    }
+
+    public Card getTopDiscard() {
+        return discardPile.peekBottom();
+    }
+
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public void setCurrentPlayer(int currentPlayer) {
+        if (currentPlayer < 0 || currentPlayer >= playerCount) {
+            throw new IllegalArgumentException("Player index out of range: " + currentPlayer);
+        }
+        this.currentPlayer = currentPlayer;
+        dirty |= TURN_DIRTY;
+    }
+
+    public boolean isReverseDirection() {
+        return reverseDirection;
+    }
+
+    public void setReverseDirection(boolean reverseDirection) {
+        this.reverseDirection = reverseDirection;
+        dirty |= TURN_DIRTY;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public void setGameOver(boolean gameOver) {
+        this.gameOver = gameOver;
+        dirty |= TURN_DIRTY;
+    }
+
+    public boolean isReshuffleDiscards() {
+        return reshuffleDiscards;
+    }
+
+    public void setReshuffleDiscards(boolean reshuffleDiscards) {
+        this.reshuffleDiscards = reshuffleDiscards;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public void setMoveCount(int moveCount) {
+        this.moveCount = moveCount;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public boolean isHandDirty(int seat) {
+        return (dirty & 1L << seat) != 0;
+    }
+
+    public boolean isDrawnDirty(int seat) {
+        return (dirty & 1L << (DRAWN_DIRTY + seat)) != 0;
+    }
+
+    // Whose turn it is, the direction of play or whether the game is over
+    public boolean isTurnDirty() {
+        return (dirty & TURN_DIRTY) != 0;
+    }
+
+    // Everything is clean again once the position has been saved or loaded
+    public void clearDirty() {
+        dirty = 0;
+        drawPile.clearDirty();
+        discardPile.clearDirty();
+    }
+
+    public void markAllDirty() {
+        dirty = -1L;
+        drawPile.markDirty();
+        discardPile.markDirty();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * Where games, their users and their credentials are kept. Commands only talk to this
+ * interface; which implementation a process uses is configuration (see GameStores):
+ *   FileGameStore      a directory of files per game, the original layout
+ *   MemoryGameStore    this process only, for tests, simulations and scripted runs
+ *   LogGameStore       every game in one append-only key-value log
+ *   MappedGameStore    every game in a fixed-size slot of one memory-mapped file
+ *
+ * A game's directory is only created when something needs it: the lock and stats of a game
+ * in a persistent store, and the session key and tokens once someone logs in. Users,
+ * credentials and the game itself live in the store.
+ */
+public interface GameStore {
+    // Create an empty game with no users; false if it already exists
+    boolean createGame(String gameName) throws IOException;
+
+    boolean gameExists(String gameName);
+
+    // Whether games outlive the process; if not, their locks stay in memory and keep no stats log
+    default boolean isPersistent() {
+        return true;
+    }
+
+    // Replace the game's users with just the admin account
+    void saveAdminCredentials(String gameName, String hashedPassword) throws IOException;
+
+    void addUser(String gameName, String username, String hashedPassword) throws IOException;
+
+    // False if there is no such user; the admin account cannot be removed
+    boolean removeUser(String gameName, String username) throws IOException;
+
+    // Every user, admin included, in the order they were added
+    List<String> getUsers(String gameName) throws IOException;
+
+    // The stored password hash (or bot strategy), or null for an unknown user
+    String getHashedPassword(String gameName, String username) throws IOException;
+
+    // Whether the game has been dealt
+    boolean isStarted(String gameName) throws IOException;
+
+    // A private copy of the game, or null if it has not been started
+    Game loadGame(String gameName) throws IOException;
+
+    // A private copy of the game if the store can hand it out without reading anything, otherwise null
+    default Game getCachedGame(String gameName) throws IOException {
+        return null;
+    }
+
+    // Store a newly dealt game, replacing whatever the game held before
+    void startGame(Game game) throws IOException;
+
+    void saveGame(Game game) throws IOException;
+
+    // Store the move just made (a MoveJournal type); stores without a cheaper way save the game
+    default void saveMove(Game game, int type, int playerIndex, Card card) throws IOException {
+        saveGame(game);
+    }
+}
\ No newline at end of file
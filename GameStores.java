@@ -0,0 +1,61 @@
+import java.util.Locale;
+
+/*
+ * The GameStore this process uses, chosen by the crazyeights.store system property or else the
+ * CRAZY_EIGHTS_STORE environment variable:
+ *   file           a directory of files per game (the default)
+ *   memory         this process only; gone when it exits
+ *   log[:path]     every game in one append-only log, games.log unless a path is given
+ *   mapped[:path]  every game in a slot of one memory-mapped file, games.map unless a path is given
+ */
+public class GameStores {
+    public static final String PROPERTY = "crazyeights.store";
+    public static final String VARIABLE = "CRAZY_EIGHTS_STORE";
+
+    private static volatile GameStore store;
+
+    // The configured store; throws IllegalArgumentException for a setting it does not know
+    public static GameStore get() {
+        GameStore current = store;
+        if (current == null) {
+            synchronized (GameStores.class) {
+                if (store == null) {
+                    store = open(configured());
+                }
+                current = store;
+            }
+        }
+        return current;
+    }
+
+    // Use this store from now on, e.g. a MemoryGameStore for a simulation
+    public static synchronized void set(GameStore replacement) {
+        store = replacement;
+    }
+
+    public static GameStore open(String setting) {
+        String kind = setting.toLowerCase(Locale.ROOT);
+        if (kind.equals("file")) {
+            return new FileGameStore();
+        }
+        if (kind.equals("memory")) {
+            return new MemoryGameStore();
+        }
+        if (kind.equals("log") || kind.startsWith("log:")) {
+            return new LogGameStore(LogGameStore.pathOf(setting));
+        }
+        if (kind.equals("mapped") || kind.startsWith("mapped:")) {
+            return new MappedGameStore(MappedGameStore.pathOf(setting));
+        }
+        throw new IllegalArgumentException("Unknown game store: " + setting
+                + " (use file, memory, log[:path] or mapped[:path])");
+    }
+
+    private static String configured() {
+        String setting = System.getProperty(PROPERTY);
+        if (setting == null || setting.isEmpty()) {
+            setting = System.getenv(VARIABLE);
+        }
+        return setting == null || setting.isEmpty() ? "file" : setting;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Read-only view of a game for commands that only look at it. Nothing is read up front; each
+ * part is read the first time it is asked for, so a command touches only the files it needs:
+ *   --order  players (users.txt, usually already in memory) and the turn (turns.txt)
+ *   --cards  one player's hand and the discard pile
+ *
+ * That matters for games still in the per-player text layout, where the full load reads two
+ * files per player plus every pile. A snapshot game is one small file (plus its journal), so
+ * for those the view loads the whole game, once, on first use, or takes it from GameCache.
+ */
+public class GameView {
+    // Loads the whole game, for the snapshot layout
+    interface Loader {
+        Game load() throws IOException;
+    }
+
+    private final String gameName;
+    private final boolean textLayout;
+    private final Loader loader;
+
+    private Game game;
+    private List<String> players;
+    private int currentPlayer = -1;
+    private Card topDiscard;
+    private boolean topDiscardLoaded;
+
+    GameView(String gameName, boolean textLayout, Loader loader) {
+        this.gameName = gameName;
+        this.textLayout = textLayout;
+        this.loader = loader;
+    }
+
+    public String getGameName() {
+        return gameName;
+    }
+
+    // Player names in seat order; empty if the game has no players
+    public List<String> getPlayers() throws IOException {
+        if (players == null) {
+            if (textLayout) {
+                long start = System.nanoTime();
+                players = GameFileManager.getUsers(gameName);
+                players.removeIf(user -> user.equals("admin"));
+                CommandStats.record(CommandStats.LOAD, start);
+            } else {
+                players = new ArrayList<>();
+                for (Player player : game().getPlayers()) {
+                    players.add(player.getName());
+                }
+            }
+        }
+        return players;
+    }
+
+    public boolean hasPlayer(String name) throws IOException {
+        return getPlayers().contains(name);
+    }
+
+    public int getCurrentPlayerIndex() throws IOException {
+        if (currentPlayer < 0) {
+            if (textLayout) {
+                long start = System.nanoTime();
+                int index = getPlayers().indexOf(GameFileManager.loadCurrentPlayer(gameName));
+                CommandStats.record(CommandStats.LOAD, start);
+                currentPlayer = Math.max(index, 0);
+            } else {
+                currentPlayer = game().getCurrentPlayerIndex();
+            }
+        }
+        return currentPlayer;
+    }
+
+    // Players in the order they will move, starting with the current one
+    public List<String> getTurnOrder() throws IOException {
+        if (!textLayout) {
+            return game().getTurnOrder();
+        }
+        // The text layout has no direction of play; it is always forward
+        List<String> names = getPlayers();
+        List<String> order = new ArrayList<>(names.size());
+        for (int i = 0, index = getCurrentPlayerIndex(); i < names.size(); i++) {
+            order.add(names.get(index));
+            index = Rules.getNextPlayerIndex(index, names.size(), false);
+        }
+        return order;
+    }
+
+    public long getHandMask(String player) throws IOException {
+        if (!textLayout) {
+            Player seat = game().getPlayerByName(player);
+            return seat == null ? 0 : seat.getHandMask();
+        }
+        long start = System.nanoTime();
+        long mask = 0;
+        for (String code : GameFileManager.loadPlayerHand(gameName, player)) {
+            mask |= Hand.bit(Card.fromCode(code));
+        }
+        CommandStats.record(CommandStats.LOAD, start);
+        return mask;
+    }
+
+    public Card getTopDiscard() throws IOException {
+        if (!topDiscardLoaded) {
+            if (textLayout) {
+                long start = System.nanoTime();
+                // The discard file lists the pile bottom first, so the top card is the last line
+                List<String> discards = GameFileManager.loadDiscardPile(gameName);
+                topDiscard = discards.isEmpty() ? null : Card.fromCode(discards.get(discards.size() - 1));
+                CommandStats.record(CommandStats.LOAD, start);
+            } else {
+                topDiscard = game().getTopDiscard();
+            }
+            topDiscardLoaded = true;
+        }
+        return topDiscard;
+    }
+
+    private Game game() throws IOException {
+        if (game == null) {
+            game = loader.load();
+            if (game == null) {
+                throw new IOException("Game '" + gameName + "' could not be loaded");
+            }
+        }
+        return game;
+    }
+}
\ No newline at end of file
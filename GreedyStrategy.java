@@ -0,0 +1,33 @@
+/*
+ * Baseline bot: sheds the highest-scoring playable card, keeping eights for last, and otherwise
+ * draws, then passes.
+ */
+public class GreedyStrategy implements Strategy {
+
+    @Override
+    public Move chooseMove(PlayerView view) {
+        long playable = view.getPlayableCards();
+        if (playable != 0) {
+            return Move.play(bestCard(playable));
+        }
+        return view.hasDrawnThisTurn() ? Move.pass() : Move.draw();
+    }
+
+    static Card bestCard(long playable) {
+        long nonEights = playable & ~Hand.EIGHTS;
+        long candidates = nonEights != 0 ? nonEights : playable;
+        Card best = null;
+        for (long remaining = candidates; remaining != 0; remaining &= remaining - 1) {
+            Card card = Card.of(Long.numberOfTrailingZeros(remaining));
+            if (best == null || card.getPointValue() > best.getPointValue()) {
+                best = card;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String getName() {
+        return "greedy";
+    }
+}
\ No newline at end of file
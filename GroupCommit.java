@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Batches the saves of many commands run in one process (see ScriptRunner). A changed game
+ * stays in memory instead of being saved; commit() saves each such game once, as a whole.
+ * Moves since the last commit are lost if the process dies, which is the price of not writing
+ * on every move.
+ *
+ * The game's lock is only held while a command runs, so other processes are not kept waiting
+ * between commits. Each unsaved game remembers the state version it was loaded at (see
+ * GameLock). If another process saves the game in the meantime, the unsaved moves are dropped
+ * with an error, both when a command goes back to the game and at commit.
+ */
+public class GroupCommit implements AutoCloseable {
+    // Unsaved games in the order they were first changed
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+    private static class Pending {
+        final Game game;
+        // The saved state the unsaved moves were made on
+        final long version;
+
+        Pending(Game game, long version) {
+            this.game = game;
+            this.version = version;
+        }
+    }
+
+    // Remember a changed game instead of saving it; the caller holds the game's exclusive lock
+    public void defer(Game game, long version) {
+        pending.put(game.getGameName(), new Pending(game, version));
+    }
+
+    /*
+     * The unsaved game of that name, or null if it has nothing waiting. The caller holds the
+     * game's lock and passes the version now on disk; unsaved moves made on an older version
+     * are dropped.
+     */
+    public Game get(String gameName, long version) {
+        Pending entry = pending.get(gameName);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.version != version) {
+            pending.remove(gameName);
+            System.err.println("Game '" + gameName + "' was changed by another process; its unsaved moves were dropped.");
+            return null;
+        }
+        return entry.game;
+    }
+
+    // Forget the unsaved moves of a game that has just been saved another way
+    public void discard(String gameName) {
+        pending.remove(gameName);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public void commit() throws IOException {
+        IOException failure = null;
+        for (Pending entry : pending.values()) {
+            try (GameLock lock = GameLock.exclusive(entry.game.getGameName())) {
+                lock.checkVersion(entry.version);
+                GameStores.get().saveGame(entry.game);
+                lock.bumpVersion();
+            } catch (StaleStateException e) {
+                System.err.println("Game '" + entry.game.getGameName() + "' was changed by another process; its unsaved moves were dropped.");
+                failure = e;
+            } catch (IOException e) {
+                System.err.println("Error saving game '" + entry.game.getGameName() + "': " + e.getMessage());
+                failure = e;
+            }
+        }
+        pending.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        commit();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Bitset helpers for a hand of cards. A hand is a long where bit n is set when the card with
+ * ordinal n is held, so membership, removal and counting are single bitwise operations.
+ */
+public final class Hand {
+    public static final long EMPTY = 0L;
+    public static final long FULL_DECK = (1L << Card.CARD_COUNT) - 1;
+
+    // SUIT_MASKS[s] has every card of suit s set
+    public static final long[] SUIT_MASKS = new long[Card.SUIT_COUNT];
+
+    // RANK_MASKS[r] has every card of rank r set
+    public static final long[] RANK_MASKS = new long[Card.RANK_COUNT];
+
+    // Every eight in the deck
+    public static final long EIGHTS;
+
+    private static final int[] RANK_POINTS = new int[Card.RANK_COUNT];
+
+    static {
+        for (int ordinal = 0; ordinal < Card.CARD_COUNT; ordinal++) {
+            Card card = Card.of(ordinal);
+            SUIT_MASKS[card.getSuitIndex()] |= bit(ordinal);
+            RANK_MASKS[card.getRankIndex()] |= bit(ordinal);
+            RANK_POINTS[card.getRankIndex()] = card.getPointValue();
+        }
+        EIGHTS = RANK_MASKS[Card.fromCode("8H").getRankIndex()];
+    }
+
+    private Hand() {
+    }
+
+    public static long bit(int ordinal) {
+        return 1L << ordinal;
+    }
+
+    public static long bit(Card card) {
+        return 1L << card.getOrdinal();
+    }
+
+    public static boolean contains(long hand, Card card) {
+        return (hand & bit(card)) != 0;
+    }
+
+    public static int size(long hand) {
+        return Long.bitCount(hand);
+    }
+
+    public static int points(long hand) {
+        int total = 0;
+        for (int rank = 0; rank < Card.RANK_COUNT; rank++) {
+            total += Long.bitCount(hand & RANK_MASKS[rank]) * RANK_POINTS[rank];
+        }
+        return total;
+    }
+
+    // Lowest-ordinal card in the hand, or null if the hand is empty
+    public static Card first(long hand) {
+        return hand == 0 ? null : Card.of(Long.numberOfTrailingZeros(hand));
+    }
+
+    public static List<Card> toCards(long hand) {
+        List<Card> cards = new ArrayList<>(Long.bitCount(hand));
+        for (long remaining = hand; remaining != 0; remaining &= remaining - 1) {
+            cards.add(Card.of(Long.numberOfTrailingZeros(remaining)));
+        }
+        return cards;
+    }
+
+    public static List<String> toCodes(long hand) {
+        List<String> codes = new ArrayList<>(Long.bitCount(hand));
+        for (long remaining = hand; remaining != 0; remaining &= remaining - 1) {
+            codes.add(Card.of(Long.numberOfTrailingZeros(remaining)).getCode());
+        }
+        return codes;
+    }
+}
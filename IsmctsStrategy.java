@@ -0,0 +1,198 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * Single-observer Information Set Monte Carlo Tree Search (Cowling, Powley and Whitehouse, 2012).
+ *
+ * Each iteration deals the cards this player cannot see at random (a determinization) and walks
+ * one shared tree keyed by move, only following moves that are legal in that deal. Leaves are
+ * finished with random playouts. The search runs independently on several threads until the
+ * time budget is spent and the root visit counts are summed (root parallelisation); the most
+ * visited move is played. The helper searches are forked into the pool the caller runs in, so
+ * a simulation or tournament stays within its thread count; outside a pool they go to the
+ * common pool.
+ *
+ * The deals and playouts come from the strategy's own generator, split once per helper thread,
+ * so one instance must not be shared between threads.
+ */
+public class IsmctsStrategy implements Strategy {
+    public static final long DEFAULT_BUDGET_MILLIS = 200;
+
+    private static final double EXPLORATION = 0.7;
+    // Playouts longer than this are scored by points, as if the draw pile had run out
+    private static final int ROLLOUT_LIMIT = 500;
+
+    private final long budgetMillis;
+    private final int threads;
+    private final SplittableRandom random;
+
+    public IsmctsStrategy(long budgetMillis) {
+        this(budgetMillis, new SplittableRandom());
+    }
+
+    public IsmctsStrategy(long budgetMillis, SplittableRandom random) {
+        this(budgetMillis, Runtime.getRuntime().availableProcessors(), random);
+    }
+
+    public IsmctsStrategy(long budgetMillis, int threads, SplittableRandom random) {
+        if (budgetMillis < 1 || threads < 1) {
+            throw new IllegalArgumentException("Budget and thread count must be positive");
+        }
+        this.budgetMillis = budgetMillis;
+        this.threads = threads;
+        this.random = random;
+    }
+
+    @Override
+    public Move chooseMove(PlayerView view) {
+        long legal = Rules.legalMoves(view.getHand(), view.getTopDiscard(), view.hasDrawnThisTurn());
+        if (Long.bitCount(legal) == 1) {
+            return Move.ofIndex(Long.numberOfTrailingZeros(legal));
+        }
+
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+
+        List<ForkJoinTask<int[]>> helpers = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            SplittableRandom stream = random.split();
+            helpers.add(ForkJoinTask.adapt(() -> search(view, deadline, stream)).fork());
+        }
+
+        // A helper that only starts after the deadline returns after a single iteration
+        int[] visits = search(view, deadline, random);
+        for (ForkJoinTask<int[]> helper : helpers) {
+            int[] counts = helper.join();
+            for (int i = 0; i < visits.length; i++) {
+                visits[i] += counts[i];
+            }
+        }
+
+        int best = Long.numberOfTrailingZeros(legal);
+        for (long remaining = legal; remaining != 0; remaining &= remaining - 1) {
+            int move = Long.numberOfTrailingZeros(remaining);
+            if (visits[move] > visits[best]) {
+                best = move;
+            }
+        }
+        return Move.ofIndex(best);
+    }
+
+    @Override
+    public String getName() {
+        return "ismcts:" + budgetMillis;
+    }
+
+    private static class Node {
+        final Node parent;
+        final int move;
+        // Seat of the player who made the move leading to this node
+        final int mover;
+        final Node[] children = new Node[Move.MOVE_COUNT];
+        long childMoves;
+        int visits;
+        int wins;
+        int avails = 1;
+
+        Node(Node parent, int move, int mover) {
+            this.parent = parent;
+            this.move = move;
+            this.mover = mover;
+        }
+
+        // UCB1 over the children that are legal in this determinization
+        Node select(long legal) {
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (long remaining = legal; remaining != 0; remaining &= remaining - 1) {
+                Node child = children[Long.numberOfTrailingZeros(remaining)];
+                double score = (double) child.wins / child.visits
+                        + EXPLORATION * Math.sqrt(Math.log(child.avails) / child.visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+                child.avails++;
+            }
+            return best;
+        }
+
+        Node expand(int move, int mover) {
+            Node child = new Node(this, move, mover);
+            children[move] = child;
+            childMoves |= 1L << move;
+            return child;
+        }
+    }
+
+    private static int[] search(PlayerView view, long deadline, SplittableRandom random) {
+        Node root = new Node(null, -1, -1);
+        GameState known = GameState.fromView(view);
+        GameState state = new GameState(view.getPlayerCount());
+
+        do {
+            // Each iteration works on a fresh deal in the same two states, so it allocates only tree nodes
+            known.copyInto(state);
+            state.determinize(view.getSeat(), random);
+            Node node = root;
+            long legal = state.legalMoves();
+
+            // Select while every legal move has already been tried
+            while (legal != 0 && (legal & ~node.childMoves) == 0) {
+                node = node.select(legal);
+                state.applyMove(node.move);
+                legal = state.legalMoves();
+            }
+
+            // Expand one untried move
+            long untried = legal & ~node.childMoves;
+            if (untried != 0) {
+                int move = randomBit(untried, random);
+                int mover = state.getCurrentPlayer();
+                state.applyMove(move);
+                node = node.expand(move, mover);
+            }
+
+            int winner = rollout(state, random);
+            for (; node != null; node = node.parent) {
+                node.visits++;
+                if (node.mover == winner) {
+                    node.wins++;
+                }
+            }
+        } while (System.nanoTime() < deadline);
+
+        int[] visits = new int[Move.MOVE_COUNT];
+        for (long remaining = root.childMoves; remaining != 0; remaining &= remaining - 1) {
+            int move = Long.numberOfTrailingZeros(remaining);
+            visits[move] = root.children[move].visits;
+        }
+        return visits;
+    }
+
+    /*
+     * Plays the game out and returns the winning seat. Players shed a random playable card when
+     * they have one and otherwise draw or pass, which is far closer to real play than choosing
+     * uniformly between playing and drawing.
+     */
+    private static int rollout(GameState state, SplittableRandom random) {
+        for (int moves = 0; moves < ROLLOUT_LIMIT; moves++) {
+            long legal = state.legalMoves();
+            if (legal == 0) {
+                break;
+            }
+            long plays = legal & Hand.FULL_DECK;
+            state.applyMove(plays != 0 ? randomBit(plays, random) : Long.numberOfTrailingZeros(legal));
+        }
+        return state.getWinner();
+    }
+
+    private static int randomBit(long mask, SplittableRandom random) {
+        int skip = random.nextInt(Long.bitCount(mask));
+        for (int i = 0; i < skip; i++) {
+            mask &= mask - 1;
+        }
+        return Long.numberOfTrailingZeros(mask);
+    }
+}
\ No newline at end of file
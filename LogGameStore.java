@@ -0,0 +1,335 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/*
+ * Every game in one append-only log file: an embedded key-value store, keyed by game and
+ * user, that runs inside the process with no server. Each change is one record
+ *   int length, int CRC32 of the payload, payload
+ * where the payload is the change type (see MemoryGameStore), the game name and then the user
+ * and hash, or the encoded game. Opening the store replays the log into memory; after that a
+ * read costs one stat of the log and a write one appended record.
+ *
+ * Processes can share a log. Appends are made under a file lock, after first reading whatever
+ * other processes appended since the last look, and a torn record left by a crash is cut off.
+ * Once the log is mostly overwritten records it is compacted into a fresh file that replaces
+ * it; a process still holding the old file notices and reloads.
+ */
+public class LogGameStore extends MemoryGameStore {
+    public static final String DEFAULT_FILE = "games.log";
+
+    private static final int HEADER_SIZE = 8;
+    private static final long MIN_COMPACTION_SIZE = 1 << 20;
+
+    private final Path path;
+    private FileChannel channel;
+    private Object fileKey;
+    // How much of the log has been applied to memory
+    private long position;
+    // Compact once the log grows past this
+    private long compactionSize = MIN_COMPACTION_SIZE;
+
+    public LogGameStore(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public synchronized boolean createGame(String gameName) throws IOException {
+        refresh();
+        return super.createGame(gameName);
+    }
+
+    @Override
+    public synchronized boolean gameExists(String gameName) {
+        try {
+            refresh();
+        } catch (IOException e) {
+            System.err.println("Error reading game log: " + e.getMessage());
+            return false;
+        }
+        return super.gameExists(gameName);
+    }
+
+    // Unlike the memory store it builds on, the log is shared with other processes
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public synchronized void saveAdminCredentials(String gameName, String hashedPassword) throws IOException {
+        refresh();
+        super.saveAdminCredentials(gameName, hashedPassword);
+    }
+
+    @Override
+    public synchronized void addUser(String gameName, String username, String hashedPassword) throws IOException {
+        refresh();
+        super.addUser(gameName, username, hashedPassword);
+    }
+
+    @Override
+    public synchronized boolean removeUser(String gameName, String username) throws IOException {
+        refresh();
+        return super.removeUser(gameName, username);
+    }
+
+    @Override
+    public synchronized List<String> getUsers(String gameName) throws IOException {
+        refresh();
+        return super.getUsers(gameName);
+    }
+
+    @Override
+    public synchronized String getHashedPassword(String gameName, String username) throws IOException {
+        refresh();
+        return super.getHashedPassword(gameName, username);
+    }
+
+    @Override
+    public synchronized boolean isStarted(String gameName) throws IOException {
+        refresh();
+        return super.isStarted(gameName);
+    }
+
+    @Override
+    public synchronized Game loadGame(String gameName) throws IOException {
+        refresh();
+        return super.loadGame(gameName);
+    }
+
+    @Override
+    public synchronized void saveGame(Game game) throws IOException {
+        refresh();
+        super.saveGame(game);
+    }
+
+    // Write the change to the log before making it in memory
+    @Override
+    synchronized void change(byte type, String gameName, String username, String hash, byte[] state) throws IOException {
+        append(record(type, gameName, username, hash, state));
+        super.change(type, gameName, username, hash, state);
+    }
+
+    // Catch up with the log: reload it if it was replaced, otherwise apply what was appended
+    private void refresh() throws IOException {
+        if (channel == null) {
+            reload();
+            return;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            reload();
+            return;
+        }
+        if (!Objects.equals(attributes.fileKey(), fileKey) || attributes.size() < position) {
+            reload();
+        } else if (attributes.size() > position) {
+            readFrom(position);
+        }
+    }
+
+    private void reload() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        entries().clear();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        position = 0;
+        readFrom(0);
+        compactionSize = Math.max(MIN_COMPACTION_SIZE, 2 * position);
+    }
+
+    // Apply every whole record from start on; a torn one at the end is left for append() to cut off
+    private void readFrom(long start) throws IOException {
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        ByteBuffer data = ByteBuffer.allocate((int) (channel.size() - start));
+        while (data.hasRemaining() && channel.read(data, start + data.position()) >= 0) {
+            // Keep reading until the buffer is full
+        }
+        data.flip();
+        CommandStats.read(path.toString(), data.limit());
+        GameEvents.commitFileIo(event, null, path.toString(), GameEvents.READ, data.limit());
+
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= HEADER_SIZE) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < 0 || length > data.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            data.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            applyRecord(payload);
+            position += HEADER_SIZE + length;
+        }
+    }
+
+    private void applyRecord(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String gameName = in.readUTF();
+        switch (type) {
+            case CREATE:
+                apply(type, gameName, null, null, null);
+                break;
+            case ADMIN:
+            case PUT_USER:
+                apply(type, gameName, in.readUTF(), in.readUTF(), null);
+                break;
+            case REMOVE_USER:
+                apply(type, gameName, in.readUTF(), null, null);
+                break;
+            case STATE:
+                byte[] state = new byte[in.readInt()];
+                in.readFully(state);
+                apply(type, gameName, null, null, state);
+                break;
+            default:
+                throw new IOException("Unknown record type " + type + " in " + path);
+        }
+    }
+
+    private static byte[] record(byte type, String gameName, String username, String hash, byte[] state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (state == null ? 0 : state.length));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeByte(type);
+        out.writeUTF(gameName);
+        if (username != null) {
+            out.writeUTF(username);
+        }
+        if (hash != null) {
+            out.writeUTF(hash);
+        }
+        if (state != null) {
+            out.writeInt(state.length);
+            out.write(state);
+        }
+
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, record.capacity() - HEADER_SIZE);
+        record.putInt(0, record.capacity() - HEADER_SIZE);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private void append(byte[] record) throws IOException {
+        while (true) {
+            if (channel == null) {
+                reload();
+            }
+            FileChannel locked = channel;
+            FileLock lock = locked.lock();
+            try {
+                // Another process may have swapped in a compacted log while we waited for the lock
+                if (!Objects.equals(Files.readAttributes(path, BasicFileAttributes.class).fileKey(), fileKey)) {
+                    reload();
+                    continue;
+                }
+                readFrom(position);
+                if (channel.size() > position) {
+                    channel.truncate(position);
+                }
+
+                GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+                position += record.length;
+                CommandStats.written(path.toString(), record.length);
+                GameEvents.commitFileIo(event, null, path.toString(), GameEvents.WRITE, record.length);
+
+                if (position >= compactionSize) {
+                    compact(record);
+                }
+                return;
+            } finally {
+                // Compacting closes the old log, which already let go of the lock
+                if (locked.isOpen()) {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /*
+     * Replace the log with one holding just the current users and state of each game. Called
+     * with the old log locked, so no other process can append to it meanwhile. The record being
+     * appended is not applied to memory yet, so it goes at the end of the new log as well.
+     */
+    private void compact(byte[] appended) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long size = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Entry> game : entries().entrySet()) {
+                Entry entry = game.getValue();
+                synchronized (entry) {
+                    size += write(out, record(CREATE, game.getKey(), null, null, null));
+                    for (Map.Entry<String, String> user : entry.users.entrySet()) {
+                        size += write(out, record(PUT_USER, game.getKey(), user.getKey(), user.getValue(), null));
+                    }
+                    if (entry.state != null) {
+                        size += write(out, record(STATE, game.getKey(), null, null, entry.state));
+                    }
+                }
+            }
+            size += write(out, appended);
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel.close();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        position = size;
+        compactionSize = Math.max(MIN_COMPACTION_SIZE, 2 * size);
+    }
+
+    private static long write(FileChannel out, byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        return record.length;
+    }
+
+    // The log named by a "log:path" store setting, or the default file
+    static Path pathOf(String setting) {
+        int colon = setting.indexOf(':');
+        return Paths.get(colon < 0 ? DEFAULT_FILE : setting.substring(colon + 1));
+    }
+}
\ No newline at end of file
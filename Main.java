@@ -1,7 +1,71 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 public class Main {
     
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            Simulator.main(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--tournament")) {
+            Tournament.main(args);
+            return;
+        }
+
+        // Every mode below keeps its games in the configured store (see GameStores)
+        try {
+            GameStores.get();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        if (args.length > 0 && (args[0].equals("--script") || args[0].equals("--repl"))) {
+            ScriptRunner.main(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--daemon")) {
+            try {
+                GameDaemon.run(args.length > 1 ? Paths.get(args[1]) : GameDaemon.defaultSocketPath());
+            } catch (IOException e) {
+                System.err.println("Error running daemon: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--http")) {
+            try {
+                GameHttpServer.run(args.length > 1 ? Integer.parseInt(args[1]) : GameHttpServer.DEFAULT_PORT);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid port: " + args[1]);
+            } catch (IOException e) {
+                System.err.println("Error running HTTP server: " + e.getMessage());
+            }
+            return;
+        }
+
+        // A token exported by the shell goes along with the command, also to the daemon
+        String token = System.getenv("CRAZY_EIGHTS_TOKEN");
+        if (token != null && !token.isEmpty() && !Arrays.asList(args).contains("--token")) {
+            args = Arrays.copyOf(args, args.length + 2);
+            args[args.length - 2] = "--token";
+            args[args.length - 1] = token;
+        }
+
+        // Hand the command to a running daemon if there is one, otherwise run it here
+        Path socketPath = GameDaemon.defaultSocketPath();
+        if (Files.exists(socketPath) && GameDaemon.forward(socketPath, CommandHandler.withStoredSession(args))) {
+            return;
+        }
+
         CommandHandler handler = new CommandHandler(args);
+        handler.useStoredSessions();
         handler.execute();
     }
 }
\ No newline at end of file
@@ -0,0 +1,547 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Many games in one memory-mapped file, one fixed-size slot each, so a read or a save is a
+ * copy to or from the OS page cache instead of opening and closing small files.
+ *
+ * The file starts with a header slot (magic, format, allocation count, slot count) followed by
+ * the game slots:
+ *   0     long     version, odd while a write is in progress
+ *   8     byte     status (FREE or USED)
+ *   9     byte     seats, 0 until the game is dealt
+ *   10    byte     current seat
+ *   11    byte     flags (bit 0: reverse direction, bit 1: game over)
+ *   12    short    drawn flags, one bit per seat
+ *   14    byte     user count
+ *   16    int      move count
+ *   20    long     shuffle seed
+ *   28    32 bytes shuffle algorithm
+ *   60    52 bytes where each card is: its seat (0-15), DRAW_PILE + position from the top,
+ *                  or DISCARD_PILE + position from the bottom
+ *   112   64 bytes game name
+ *   176   users: MAX_USERS times a 32-byte name and a 64-byte password hash
+ *   1808  seats: MAX_PLAYERS 32-byte player names
+ * Strings are a length byte and UTF-8.
+ *
+ * Which slot holds which game is an in-memory index, with a list of free slots, built by
+ * scanning the file and rescanned only when the header shows another process has allocated a
+ * slot since. Allocating (and growing the file) happens under a lock on the header. Each slot
+ * is a seqlock on its version: a writer takes it with a compare-and-set from even to odd and
+ * releases it at the next even number, and a reader copies the slot and starts over if the
+ * version moved meanwhile. That works between processes too, since they map the same pages.
+ * A slot left odd by a process that died mid-write is taken over after a second.
+ */
+public class MappedGameStore implements GameStore {
+    public static final String DEFAULT_FILE = "games.map";
+
+    private static final int MAGIC = 0x4345384D;
+    private static final int FORMAT_VERSION = 1;
+    private static final int SLOT_SIZE = 4096;
+    private static final int HEADER_SIZE = SLOT_SIZE;
+    private static final int GROWTH_SLOTS = 256;
+    private static final long STALE_WRITER_NANOS = 1_000_000_000L;
+
+    // Header
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_FORMAT = 4;
+    private static final int HEADER_ALLOCATIONS = 8;
+    private static final int HEADER_SLOTS = 16;
+
+    // Slot
+    private static final int VERSION = 0;
+    private static final int STATUS = 8;
+    private static final int SEATS = 9;
+    private static final int CURRENT_SEAT = 10;
+    private static final int FLAGS = 11;
+    private static final int DRAWN = 12;
+    private static final int USER_COUNT = 14;
+    private static final int MOVE_COUNT = 16;
+    private static final int SEED = 20;
+    private static final int ALGORITHM = 28;
+    private static final int ALGORITHM_SIZE = 32;
+    private static final int LOCATIONS = 60;
+    private static final int NAME = 112;
+    private static final int NAME_SIZE = 64;
+    private static final int USERS = 176;
+    private static final int USER_NAME_SIZE = 32;
+    private static final int HASH_SIZE = 64;
+    private static final int USER_SIZE = USER_NAME_SIZE + HASH_SIZE;
+    private static final int MAX_USERS = GameState.MAX_PLAYERS + 1;
+    private static final int SEAT_NAMES = USERS + MAX_USERS * USER_SIZE;
+
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final int FLAG_REVERSE = 1;
+    private static final int FLAG_GAME_OVER = 2;
+    private static final int DRAW_PILE = 0x40;
+    private static final int DISCARD_PILE = 0x80;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int slotCount;
+    private long allocationsSeen = -1;
+    private final Map<String, Integer> index = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    public MappedGameStore(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public synchronized boolean createGame(String gameName) throws IOException {
+        byte[] name = encode(gameName, NAME_SIZE, "Game name");
+        open();
+        FileLock lock = channel.lock(0, HEADER_SIZE, false);
+        try {
+            refresh();
+            if (index.containsKey(gameName)) {
+                return false;
+            }
+
+            int slot = allocate();
+            int offset = offset(slot);
+            long version = lockSlot(offset);
+            try {
+                for (int i = STATUS; i < SLOT_SIZE; i++) {
+                    buffer.put(offset + i, (byte) 0);
+                }
+                putString(offset + NAME, name);
+                buffer.put(offset + STATUS, USED);
+            } finally {
+                unlockSlot(offset, version);
+            }
+            allocationsSeen = (long) LONGS.getAndAdd(buffer, HEADER_ALLOCATIONS, 1L) + 1;
+            index.put(gameName, slot);
+        } finally {
+            lock.release();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean gameExists(String gameName) {
+        try {
+            return find(gameName) >= 0;
+        } catch (IOException e) {
+            System.err.println("Error reading game store: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void saveAdminCredentials(String gameName, String hashedPassword) throws IOException {
+        byte[] name = encode("admin", USER_NAME_SIZE, "Username");
+        byte[] hash = encode(hashedPassword, HASH_SIZE, "Password hash");
+        int offset = offset(slotOf(gameName));
+        long version = lockSlot(offset);
+        try {
+            putString(offset + USERS, name);
+            putString(offset + USERS + USER_NAME_SIZE, hash);
+            buffer.put(offset + USER_COUNT, (byte) 1);
+        } finally {
+            unlockSlot(offset, version);
+        }
+    }
+
+    @Override
+    public synchronized void addUser(String gameName, String username, String hashedPassword) throws IOException {
+        if (username.equalsIgnoreCase("admin")) {
+            throw new IOException("Username 'admin' is reserved and cannot be added manually.");
+        }
+        byte[] name = encode(username, USER_NAME_SIZE, "Username");
+        byte[] hash = encode(hashedPassword, HASH_SIZE, "Password hash");
+        int offset = offset(slotOf(gameName));
+        long version = lockSlot(offset);
+        try {
+            int count = buffer.get(offset + USER_COUNT);
+            int user = findUser(offset, username, count);
+            if (user < 0) {
+                if (count == MAX_USERS) {
+                    throw new IOException("A game holds at most " + GameState.MAX_PLAYERS + " players and the admin.");
+                }
+                user = count;
+                putString(offset + USERS + user * USER_SIZE, name);
+                buffer.put(offset + USER_COUNT, (byte) (count + 1));
+            }
+            putString(offset + USERS + user * USER_SIZE + USER_NAME_SIZE, hash);
+        } finally {
+            unlockSlot(offset, version);
+        }
+    }
+
+    @Override
+    public synchronized boolean removeUser(String gameName, String username) throws IOException {
+        if (username.equals("admin")) {
+            return false;
+        }
+        int offset = offset(slotOf(gameName));
+        long version = lockSlot(offset);
+        try {
+            int count = buffer.get(offset + USER_COUNT);
+            int user = findUser(offset, username, count);
+            if (user < 0) {
+                return false;
+            }
+            // Later users move up, so the table stays in the order users were added
+            for (int i = user; i < count - 1; i++) {
+                int to = offset + USERS + i * USER_SIZE;
+                for (int j = 0; j < USER_SIZE; j++) {
+                    buffer.put(to + j, buffer.get(to + USER_SIZE + j));
+                }
+            }
+            buffer.put(offset + USER_COUNT, (byte) (count - 1));
+            return true;
+        } finally {
+            unlockSlot(offset, version);
+        }
+    }
+
+    @Override
+    public synchronized List<String> getUsers(String gameName) throws IOException {
+        ByteBuffer slot = read(gameName);
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < slot.get(USER_COUNT); i++) {
+            users.add(getString(slot, USERS + i * USER_SIZE));
+        }
+        return users;
+    }
+
+    @Override
+    public synchronized String getHashedPassword(String gameName, String username) throws IOException {
+        ByteBuffer slot = read(gameName);
+        for (int i = 0; i < slot.get(USER_COUNT); i++) {
+            if (getString(slot, USERS + i * USER_SIZE).equals(username)) {
+                return getString(slot, USERS + i * USER_SIZE + USER_NAME_SIZE);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized boolean isStarted(String gameName) throws IOException {
+        return read(gameName).get(SEATS) != 0;
+    }
+
+    @Override
+    public synchronized Game loadGame(String gameName) throws IOException {
+        ByteBuffer slot = read(gameName);
+        int seats = slot.get(SEATS);
+        if (seats == 0) {
+            return null;
+        }
+        int currentSeat = slot.get(CURRENT_SEAT);
+        if (seats < 0 || seats > GameState.MAX_PLAYERS || currentSeat < 0 || currentSeat >= seats) {
+            throw new IOException("Corrupt game store: seat " + currentSeat + " of " + seats + " in game '" + gameName + "'");
+        }
+
+        List<String> names = new ArrayList<>(seats);
+        for (int seat = 0; seat < seats; seat++) {
+            names.add(getString(slot, SEAT_NAMES + seat * USER_NAME_SIZE));
+        }
+        Game game = new Game(gameName, names, new Deck(new ArrayList<>()));
+        GameState state = game.getState();
+
+        // Cards go back into the piles in position order
+        Card[] drawPile = new Card[Card.CARD_COUNT];
+        Card[] discardPile = new Card[Card.CARD_COUNT];
+        int drawSize = 0;
+        int discardSize = 0;
+        for (int ordinal = 0; ordinal < Card.CARD_COUNT; ordinal++) {
+            int location = slot.get(LOCATIONS + ordinal) & 0xFF;
+            if (location < seats) {
+                state.setHand(location, state.getHand(location) | Hand.bit(ordinal));
+            } else if ((location & 0xC0) == DRAW_PILE) {
+                drawPile[location & 0x3F] = Card.of(ordinal);
+                drawSize++;
+            } else if ((location & 0xC0) == DISCARD_PILE) {
+                discardPile[location & 0x3F] = Card.of(ordinal);
+                discardSize++;
+            } else {
+                throw new IOException("Corrupt game store: card " + ordinal + " of game '" + gameName + "' is nowhere");
+            }
+        }
+        addPile(gameName, game.getDrawPile(), drawPile, drawSize);
+        addPile(gameName, game.getDiscardPile(), discardPile, discardSize);
+
+        int drawn = slot.getShort(DRAWN);
+        for (int seat = 0; seat < seats; seat++) {
+            state.setDrawn(seat, (drawn & 1 << seat) != 0);
+        }
+        int flags = slot.get(FLAGS);
+        game.setSeed(getString(slot, ALGORITHM), slot.getLong(SEED));
+        game.setMoveCount(slot.getInt(MOVE_COUNT));
+        game.restoreTurn(currentSeat, (flags & FLAG_REVERSE) != 0, (flags & FLAG_GAME_OVER) != 0);
+        game.clearDirty();
+        return game;
+    }
+
+    // A load is a copy out of memory already, so every game counts as cached
+    @Override
+    public synchronized Game getCachedGame(String gameName) throws IOException {
+        return find(gameName) < 0 ? null : loadGame(gameName);
+    }
+
+    @Override
+    public void startGame(Game game) throws IOException {
+        saveGame(game);
+    }
+
+    @Override
+    public synchronized void saveGame(Game game) throws IOException {
+        List<Player> players = game.getPlayers();
+        byte[][] names = new byte[players.size()][];
+        for (int seat = 0; seat < names.length; seat++) {
+            names[seat] = encode(players.get(seat).getName(), USER_NAME_SIZE, "Username");
+        }
+        byte[] algorithm = encode(game.getShuffleAlgorithm(), ALGORITHM_SIZE, "Shuffle algorithm");
+
+        GameState state = game.getState();
+        byte[] locations = new byte[Card.CARD_COUNT];
+        for (int seat = 0; seat < names.length; seat++) {
+            for (long hand = state.getHand(seat); hand != 0; hand &= hand - 1) {
+                locations[Long.numberOfTrailingZeros(hand)] = (byte) seat;
+            }
+        }
+        Deck drawPile = game.getDrawPile();
+        for (int i = 0; i < drawPile.size(); i++) {
+            locations[drawPile.ordinalAt(i)] = (byte) (DRAW_PILE | i);
+        }
+        Deck discardPile = game.getDiscardPile();
+        for (int i = 0; i < discardPile.size(); i++) {
+            locations[discardPile.ordinalAt(i)] = (byte) (DISCARD_PILE | i);
+        }
+        int drawn = 0;
+        for (int seat = 0; seat < names.length; seat++) {
+            drawn |= state.isDrawn(seat) ? 1 << seat : 0;
+        }
+
+        int offset = offset(slotOf(game.getGameName()));
+        long version = lockSlot(offset);
+        try {
+            buffer.put(offset + SEATS, (byte) names.length);
+            buffer.put(offset + CURRENT_SEAT, (byte) game.getCurrentPlayerIndex());
+            buffer.put(offset + FLAGS, (byte) ((game.isReverseDirection() ? FLAG_REVERSE : 0)
+                    | (game.isGameOver() ? FLAG_GAME_OVER : 0)));
+            buffer.putShort(offset + DRAWN, (short) drawn);
+            buffer.putInt(offset + MOVE_COUNT, game.getMoveCount());
+            buffer.putLong(offset + SEED, game.getSeed());
+            putString(offset + ALGORITHM, algorithm);
+            buffer.put(offset + LOCATIONS, locations);
+            for (int seat = 0; seat < names.length; seat++) {
+                putString(offset + SEAT_NAMES + seat * USER_NAME_SIZE, names[seat]);
+            }
+        } finally {
+            unlockSlot(offset, version);
+        }
+        game.clearDirty();
+    }
+
+    // Map the file, creating it with an empty header and a first batch of slots if needed
+    private void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock = channel.lock(0, HEADER_SIZE, false);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                map(HEADER_SIZE + (long) GROWTH_SLOTS * SLOT_SIZE);
+                buffer.putInt(HEADER_FORMAT, FORMAT_VERSION);
+                buffer.putInt(HEADER_SLOTS, GROWTH_SLOTS);
+                buffer.putInt(HEADER_MAGIC, MAGIC);
+            } else {
+                map(channel.size());
+            }
+            if (buffer.getInt(HEADER_MAGIC) != MAGIC || buffer.getInt(HEADER_FORMAT) != FORMAT_VERSION) {
+                throw new IOException("Not a game store: " + path);
+            }
+            refresh();
+        } finally {
+            lock.release();
+        }
+    }
+
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Game store is full: " + path);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    // Catch up with slots other processes have added or allocated since the last look
+    private void refresh() throws IOException {
+        int slots = buffer.getInt(HEADER_SLOTS);
+        if (slots != slotCount) {
+            map(HEADER_SIZE + (long) slots * SLOT_SIZE);
+        }
+        long allocations = (long) LONGS.getVolatile(buffer, HEADER_ALLOCATIONS);
+        if (slots == slotCount && allocations == allocationsSeen) {
+            return;
+        }
+
+        index.clear();
+        freeSlots.clear();
+        for (int slot = 0; slot < slots; slot++) {
+            int offset = offset(slot);
+            if (buffer.get(offset + STATUS) == USED) {
+                index.put(getString(buffer, offset + NAME), slot);
+            } else {
+                freeSlots.add(slot);
+            }
+        }
+        slotCount = slots;
+        allocationsSeen = allocations;
+    }
+
+    // A free slot, growing the file when there is none; the caller holds the header lock
+    private int allocate() throws IOException {
+        while (!freeSlots.isEmpty()) {
+            int slot = freeSlots.poll();
+            if (buffer.get(offset(slot) + STATUS) == FREE) {
+                return slot;
+            }
+        }
+
+        int slots = slotCount + GROWTH_SLOTS;
+        map(HEADER_SIZE + (long) slots * SLOT_SIZE);
+        for (int slot = slotCount + 1; slot < slots; slot++) {
+            freeSlots.add(slot);
+        }
+        buffer.putInt(HEADER_SLOTS, slots);
+        int first = slotCount;
+        slotCount = slots;
+        return first;
+    }
+
+    // The game's slot, or -1 if there is no such game
+    private int find(String gameName) throws IOException {
+        open();
+        Integer slot = index.get(gameName);
+        if (slot == null) {
+            refresh();
+            slot = index.get(gameName);
+        }
+        return slot == null ? -1 : slot;
+    }
+
+    private int slotOf(String gameName) throws IOException {
+        int slot = find(gameName);
+        if (slot < 0) {
+            throw new IOException("Game '" + gameName + "' does not exist.");
+        }
+        return slot;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    // Take the slot for writing; returns the odd version to hand to unlockSlot
+    private long lockSlot(int offset) {
+        long seen = -1;
+        long deadline = 0;
+        while (true) {
+            long version = (long) LONGS.getVolatile(buffer, offset + VERSION);
+            if ((version & 1) == 0) {
+                if (LONGS.compareAndSet(buffer, offset + VERSION, version, version + 1)) {
+                    return version + 1;
+                }
+            } else if (version != seen) {
+                seen = version;
+                deadline = System.nanoTime() + STALE_WRITER_NANOS;
+            } else if (System.nanoTime() > deadline
+                    && LONGS.compareAndSet(buffer, offset + VERSION, version, version + 2)) {
+                // Whoever made it odd stopped part-way; take the slot over
+                return version + 2;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void unlockSlot(int offset, long version) {
+        LONGS.setRelease(buffer, offset + VERSION, version + 1);
+    }
+
+    // A consistent copy of the game's slot
+    private ByteBuffer read(String gameName) throws IOException {
+        int offset = offset(slotOf(gameName));
+        byte[] copy = new byte[SLOT_SIZE];
+        while (true) {
+            long before = (long) LONGS.getAcquire(buffer, offset + VERSION);
+            if ((before & 1) == 0) {
+                buffer.get(offset, copy);
+                VarHandle.acquireFence();
+                if ((long) LONGS.getVolatile(buffer, offset + VERSION) == before) {
+                    return ByteBuffer.wrap(copy);
+                }
+            } else {
+                // Wait out the writer, or take the slot over from a dead one
+                unlockSlot(offset, lockSlot(offset));
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private int findUser(int offset, String username, int count) {
+        for (int i = 0; i < count; i++) {
+            if (getString(buffer, offset + USERS + i * USER_SIZE).equals(username)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void addPile(String gameName, Deck pile, Card[] cards, int size) throws IOException {
+        for (int i = 0; i < size; i++) {
+            if (cards[i] == null) {
+                throw new IOException("Corrupt game store: gap in a pile of game '" + gameName + "'");
+            }
+            pile.addCard(cards[i]);
+        }
+    }
+
+    private static byte[] encode(String value, int fieldSize, String what) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= fieldSize) {
+            throw new IOException(what + " is too long for the mapped game store: " + value);
+        }
+        return bytes;
+    }
+
+    private void putString(int at, byte[] bytes) {
+        buffer.put(at, (byte) bytes.length);
+        buffer.put(at + 1, bytes);
+    }
+
+    private static String getString(ByteBuffer from, int at) {
+        byte[] bytes = new byte[from.get(at) & 0xFF];
+        from.get(at + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The store file named by a "mapped:path" store setting, or the default file
+    static Path pathOf(String setting) {
+        int colon = setting.indexOf(':');
+        return Paths.get(colon < 0 ? DEFAULT_FILE : setting.substring(colon + 1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Keeps every game in this process only. Users are a map per game and the game itself is held
+ * as an encoded snapshot, so each load is a private copy just as it is with the files. Nothing
+ * survives the process and, unless someone logs in, nothing is written to disk: this is the
+ * store for tests, simulations and scripted or resident runs that do not need their games
+ * afterwards.
+ *
+ * Every change goes through apply(), which LogGameStore also uses to replay its log.
+ */
+public class MemoryGameStore implements GameStore {
+    // Kinds of change, as recorded by LogGameStore
+    static final byte CREATE = 1;
+    static final byte ADMIN = 2;
+    static final byte PUT_USER = 3;
+    static final byte REMOVE_USER = 4;
+    static final byte STATE = 5;
+
+    private final Map<String, Entry> games = new ConcurrentHashMap<>();
+
+    static class Entry {
+        final Map<String, String> users = new LinkedHashMap<>();
+        byte[] state;
+    }
+
+    @Override
+    public synchronized boolean createGame(String gameName) throws IOException {
+        if (games.containsKey(gameName)) {
+            return false;
+        }
+        change(CREATE, gameName, null, null, null);
+        return true;
+    }
+
+    @Override
+    public boolean gameExists(String gameName) {
+        return games.containsKey(gameName);
+    }
+
+    // Nothing is written to disk, so no other process can see these games
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public void saveAdminCredentials(String gameName, String hashedPassword) throws IOException {
+        entry(gameName);
+        change(ADMIN, gameName, "admin", hashedPassword, null);
+    }
+
+    @Override
+    public void addUser(String gameName, String username, String hashedPassword) throws IOException {
+        if (username.equalsIgnoreCase("admin")) {
+            throw new IOException("Username 'admin' is reserved and cannot be added manually.");
+        }
+        entry(gameName);
+        change(PUT_USER, gameName, username, hashedPassword, null);
+    }
+
+    @Override
+    public boolean removeUser(String gameName, String username) throws IOException {
+        Entry entry = entry(gameName);
+        synchronized (entry) {
+            if (username.equals("admin") || !entry.users.containsKey(username)) {
+                return false;
+            }
+            change(REMOVE_USER, gameName, username, null, null);
+            return true;
+        }
+    }
+
+    @Override
+    public List<String> getUsers(String gameName) throws IOException {
+        Entry entry = entry(gameName);
+        synchronized (entry) {
+            return new ArrayList<>(entry.users.keySet());
+        }
+    }
+
+    @Override
+    public String getHashedPassword(String gameName, String username) throws IOException {
+        Entry entry = entry(gameName);
+        synchronized (entry) {
+            return entry.users.get(username);
+        }
+    }
+
+    @Override
+    public boolean isStarted(String gameName) throws IOException {
+        Entry entry = entry(gameName);
+        synchronized (entry) {
+            return entry.state != null;
+        }
+    }
+
+    @Override
+    public Game loadGame(String gameName) throws IOException {
+        Entry entry = entry(gameName);
+        byte[] state;
+        synchronized (entry) {
+            state = entry.state;
+        }
+        if (state == null) {
+            return null;
+        }
+        Game game = GameSnapshot.decode(gameName, state);
+        game.clearDirty();
+        return game;
+    }
+
+    // Decoding is all a load costs here, so every game counts as cached
+    @Override
+    public Game getCachedGame(String gameName) throws IOException {
+        return gameExists(gameName) ? loadGame(gameName) : null;
+    }
+
+    @Override
+    public void startGame(Game game) throws IOException {
+        saveGame(game);
+    }
+
+    @Override
+    public void saveGame(Game game) throws IOException {
+        entry(game.getGameName());
+        change(STATE, game.getGameName(), null, null, GameSnapshot.encode(game));
+        game.clearDirty();
+    }
+
+    // Record and make a change; LogGameStore writes it to its log first
+    void change(byte type, String gameName, String username, String hash, byte[] state) throws IOException {
+        apply(type, gameName, username, hash, state);
+    }
+
+    void apply(byte type, String gameName, String username, String hash, byte[] state) throws IOException {
+        if (type == CREATE) {
+            games.putIfAbsent(gameName, new Entry());
+            return;
+        }
+
+        Entry entry = games.get(gameName);
+        if (entry == null) {
+            throw new IOException("Game '" + gameName + "' does not exist.");
+        }
+        synchronized (entry) {
+            switch (type) {
+                case ADMIN:
+                    entry.users.clear();
+                    entry.users.put(username, hash);
+                    break;
+                case PUT_USER:
+                    entry.users.put(username, hash);
+                    break;
+                case REMOVE_USER:
+                    entry.users.remove(username);
+                    break;
+                case STATE:
+                    entry.state = state;
+                    break;
+                default:
+                    throw new IOException("Unknown change type: " + type);
+            }
+        }
+    }
+
+    // Every game with its users and state, for LogGameStore to write out when it compacts
+    Map<String, Entry> entries() {
+        return games;
+    }
+
+    private Entry entry(String gameName) throws IOException {
+        Entry entry = games.get(gameName);
+        if (entry == null) {
+            throw new IOException("Game '" + gameName + "' does not exist.");
+        }
+        return entry;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+/*
+ * A move a player can make on their turn: play a card, draw a card or pass.
+ * Moves are canonical like cards, so choosing one never allocates.
+ */
+public final class Move {
+    public static final int PLAY = MoveJournal.PLAY;
+    public static final int DRAW = MoveJournal.DRAW;
+    public static final int PASS = MoveJournal.PASS;
+
+    // Dense move indexes used by search code: 0-51 play that card, then draw, then pass
+    public static final int DRAW_INDEX = Card.CARD_COUNT;
+    public static final int PASS_INDEX = Card.CARD_COUNT + 1;
+    public static final int MOVE_COUNT = Card.CARD_COUNT + 2;
+
+    private static final Move[] MOVES = new Move[MOVE_COUNT];
+
+    static {
+        for (int ordinal = 0; ordinal < Card.CARD_COUNT; ordinal++) {
+            MOVES[ordinal] = new Move(PLAY, Card.of(ordinal), ordinal);
+        }
+        MOVES[DRAW_INDEX] = new Move(DRAW, null, DRAW_INDEX);
+        MOVES[PASS_INDEX] = new Move(PASS, null, PASS_INDEX);
+    }
+
+    private final int type;
+    private final Card card;
+    private final int index;
+
+    private Move(int type, Card card, int index) {
+        this.type = type;
+        this.card = card;
+        this.index = index;
+    }
+
+    public static Move play(Card card) {
+        return MOVES[card.getOrdinal()];
+    }
+
+    public static Move draw() {
+        return MOVES[DRAW_INDEX];
+    }
+
+    public static Move pass() {
+        return MOVES[PASS_INDEX];
+    }
+
+    public static Move ofIndex(int index) {
+        return MOVES[index];
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    // The card to play, or null for draws and passes
+    public Card getCard() {
+        return card;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case PLAY: return "play " + card.getCode();
+            case DRAW: return "draw";
+            default: return "pass";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Append-only journal of the moves made since the last snapshot of a game.
+ *
+ * Each move is one fixed-size record appended with a single write:
+ *   int  sequence (the game's move count before the move)
+ *   byte type (PLAY, DRAW or PASS)
+ *   byte index of the player who moved
+ *   byte card ordinal, or NO_CARD
+ *
+ * Loading a game reads the snapshot and replays the records after it. Every CHECKPOINT_INTERVAL
+ * moves, and when the game ends, the game is written as a fresh snapshot and the journal is cleared.
+ */
+public class MoveJournal {
+    public static final int PLAY = 1;
+    public static final int DRAW = 2;
+    public static final int PASS = 3;
+
+    public static final int CHECKPOINT_INTERVAL = 32;
+
+    static final int RECORD_SIZE = 7;
+    private static final int NO_CARD = 0xFF;
+    static final String JOURNAL_FILE = "journal.bin";
+
+    public static void append(String gameName, int sequence, int type, int playerIndex, Card card) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putInt(sequence);
+        record.put((byte) type);
+        record.put((byte) playerIndex);
+        record.put((byte) (card == null ? NO_CARD : card.getOrdinal()));
+        record.flip();
+
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        try (FileChannel channel = FileChannel.open(journalPath(gameName),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        }
+        CommandStats.written(journalPath(gameName).toString(), RECORD_SIZE);
+        GameEvents.commitFileIo(event, gameName, journalPath(gameName).toString(), GameEvents.WRITE, RECORD_SIZE);
+    }
+
+    // Whether the move just made should be folded into a snapshot instead of appended
+    public static boolean isCheckpointDue(Game game) {
+        return game.isGameOver() || game.getMoveCount() % CHECKPOINT_INTERVAL == 0;
+    }
+
+    /*
+     * Re-apply the journaled moves that are newer than the loaded snapshot. Records the snapshot
+     * already contains are skipped, and a torn record at the end of the file (from a crash
+     * mid-append) is ignored. Returns the number of moves replayed.
+     */
+    public static int replay(String gameName, Game game) throws IOException {
+        Path journal = journalPath(gameName);
+        if (!Files.exists(journal)) {
+            return 0;
+        }
+
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        byte[] data = Files.readAllBytes(journal);
+        CommandStats.read(journal.toString(), data.length);
+        GameEvents.commitFileIo(event, gameName, journal.toString(), GameEvents.READ, data.length);
+        ByteBuffer records = ByteBuffer.wrap(data);
+        int replayed = 0;
+
+        while (records.remaining() >= RECORD_SIZE) {
+            int sequence = records.getInt();
+            int type = records.get();
+            int playerIndex = records.get();
+            int ordinal = records.get() & 0xFF;
+
+            if (sequence < game.getMoveCount()) {
+                continue;
+            }
+            if (sequence > game.getMoveCount()) {
+                throw new IOException("Journal for game '" + gameName + "' is missing move " + game.getMoveCount());
+            }
+            if (playerIndex != game.getCurrentPlayerIndex()) {
+                throw new IOException("Journal move " + sequence + " was made out of turn");
+            }
+            if (!apply(game, type, ordinal)) {
+                throw new IOException("Journal move " + sequence + " cannot be replayed");
+            }
+            replayed++;
+        }
+
+        return replayed;
+    }
+
+    public static void reset(String gameName) throws IOException {
+        Files.deleteIfExists(journalPath(gameName));
+    }
+
+    private static boolean apply(Game game, int type, int ordinal) {
+        switch (type) {
+            case PLAY:
+                return ordinal < Card.CARD_COUNT && game.playCard(Card.of(ordinal).getCode());
+            case DRAW:
+                Card drawn = game.drawCard();
+                return drawn != null && drawn.getOrdinal() == ordinal;
+            case PASS:
+                return game.passTurn();
+            default:
+                return false;
+        }
+    }
+
+    private static Path journalPath(String gameName) {
+        return Paths.get(gameName, JOURNAL_FILE);
+    }
+}
\ No newline at end of file
@@ -1,114 +1,120 @@
-import java.util.ArrayList;
 import java.util.List;
 
+/*
+ * A seat in a GameState: the hand and drawn flag live in the state, so a Player holds nothing
+ * but its name and seat and reads and writes straight through.
+ */
 public class Player {
     private String name;
-    private List<Card> hand;
-    private boolean hasDrawnThisTurn;
+    private final GameState state;
+    private final int seat;
     
+    // A player on their own, not seated in any game
     public Player(String name) {
+        this(name, new GameState(1), 0);
+    }
+
+    Player(String name, GameState state, int seat) {
         this.name = name;
-        this.hand = new ArrayList<>();
-        this.hasDrawnThisTurn = false;
+        this.state = state;
+        this.seat = seat;
     }
     
     public String getName() {
         return name;
     }
     
+    public int getSeat() {
+        return seat;
+    }
+    
     public void addCard(Card card) {
-        hand.add(card);
+        state.setHand(seat, state.getHand(seat) | Hand.bit(card));
     }
     
     public void addCards(List<Card> cards) {
-        hand.addAll(cards);
+        long hand = state.getHand(seat);
+        for (Card card : cards) {
+            hand |= Hand.bit(card);
+        }
+        state.setHand(seat, hand);
     }
     
     public Card playCard(String cardCode) {
-        for (int i = 0; i < hand.size(); i++) {
-            if (hand.get(i).getCode().equals(cardCode)) {
-                return hand.remove(i);
-            }
+        int ordinal = Card.ordinalOf(cardCode);
+        long hand = state.getHand(seat);
+        if (ordinal < 0 || (hand & Hand.bit(ordinal)) == 0) {
+            return null;
         }
-        return null;
+        state.setHand(seat, hand & ~Hand.bit(ordinal));
+        return Card.of(ordinal);
+    }
+    
+    public void clearHand() {
+        state.setHand(seat, Hand.EMPTY);
     }
     
     public boolean hasCard(String cardCode) {
-        for (Card card : hand) {
-            if (card.getCode().equals(cardCode)) {
-                return true;
-            }
-        }
-        return false;
+        int ordinal = Card.ordinalOf(cardCode);
+        return ordinal >= 0 && (state.getHand(seat) & Hand.bit(ordinal)) != 0;
     }
     
 
     public boolean canPlay(Card topDiscard) {
-        for (Card card : hand) {
-            if (canPlayCard(card, topDiscard)) {
-                return true;
-            }
-        }
-        return false;
+        return (state.getHand(seat) & Rules.legalResponses(topDiscard)) != 0;
     }
     
     public List<Card> getPlayableCards(Card topDiscard) {
-        List<Card> playableCards = new ArrayList<>();
-        for (Card card : hand) {
-            if (canPlayCard(card, topDiscard)) {
-                playableCards.add(card);
-            }
-        }
-        return playableCards;
+        return Hand.toCards(state.getHand(seat) & Rules.legalResponses(topDiscard));
     }
 
     public boolean canPlayCard(Card card, Card topDiscard) {
-        if (card.getRank().equals("8")) {
-            return true;
-        }
-        
-        return card.getRank().equals(topDiscard.getRank()) || 
-               card.getSuit().equals(topDiscard.getSuit());
+        return Rules.isValidPlay(card, topDiscard);
     }
     
     public int calculatePoints() {
-        int total = 0;
-        for (Card card : hand) {
-            total += card.getPointValue();
-        }
-        return total;
+        return Hand.points(state.getHand(seat));
     }
     
     public int getHandSize() {
-        return hand.size();
+        return Hand.size(state.getHand(seat));
     }
     
     public boolean hasWon() {
-        return hand.isEmpty();
+        return state.getHand(seat) == Hand.EMPTY;
+    }
+    
+    public long getHandMask() {
+        return state.getHand(seat);
     }
     
     public List<Card> getHand() {
-        return new ArrayList<>(hand);
+        return Hand.toCards(state.getHand(seat));
     }
     
     public List<String> getHandAsCodes() {
-        List<String> codes = new ArrayList<>();
-        for (Card card : hand) {
-            codes.add(card.getCode());
-        }
-        return codes;
+        return Hand.toCodes(state.getHand(seat));
     }
 
     public void setHasDrawnThisTurn(boolean hasDrawn) {
-        this.hasDrawnThisTurn = hasDrawn;
+        state.setDrawn(seat, hasDrawn);
     }
     
     public boolean hasDrawnThisTurn() {
-        return hasDrawnThisTurn;
+        return state.isDrawn(seat);
+    }
+
+    // Whether the hand or drawn flag changed since the state was last marked clean
+    public boolean isHandDirty() {
+        return state.isHandDirty(seat);
+    }
+
+    public boolean isDrawnStateDirty() {
+        return state.isDrawnDirty(seat);
     }
     
     @Override
     public String toString() {
-        return name + " (" + hand.size() + " cards)";
+        return name + " (" + getHandSize() + " cards)";
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+import java.util.List;
+
+/*
+ * What the player whose turn it is can see: their own hand, the discards, the top card, how many
+ * cards everyone else holds and how many are left to draw. Strategies decide from this alone.
+ */
+public final class PlayerView {
+    private int seat;
+    private long hand;
+    private long discards;
+    private Card topDiscard;
+    private int[] handSizes;
+    private int drawPileSize;
+    private boolean hasDrawnThisTurn;
+    private boolean reverseDirection;
+
+    public PlayerView(int seat, long hand, long discards, Card topDiscard, int[] handSizes,
+                      int drawPileSize, boolean hasDrawnThisTurn, boolean reverseDirection) {
+        this.seat = seat;
+        this.hand = hand;
+        this.discards = discards;
+        this.topDiscard = topDiscard;
+        this.handSizes = handSizes;
+        this.drawPileSize = drawPileSize;
+        this.hasDrawnThisTurn = hasDrawnThisTurn;
+        this.reverseDirection = reverseDirection;
+    }
+
+    // An empty view for a game of this many players, to be filled in by update
+    public PlayerView(int players) {
+        this.handSizes = new int[players];
+    }
+
+    // The view of the player whose turn it is
+    public static PlayerView of(Game game) {
+        return new PlayerView(game.getPlayers().size()).update(game);
+    }
+
+    /*
+     * Refill this view for the player whose turn it is now, so a loop playing many moves can
+     * reuse one view. Strategies must not keep a view past the chooseMove call it was given to.
+     */
+    public PlayerView update(Game game) {
+        List<Player> players = game.getPlayers();
+        if (handSizes.length != players.size()) {
+            handSizes = new int[players.size()];
+        }
+        for (int i = 0; i < handSizes.length; i++) {
+            handSizes[i] = players.get(i).getHandSize();
+        }
+
+        long discardMask = Hand.EMPTY;
+        Deck discardPile = game.getDiscardPile();
+        for (int i = 0; i < discardPile.size(); i++) {
+            discardMask |= Hand.bit(discardPile.ordinalAt(i));
+        }
+
+        Player current = game.getCurrentPlayer();
+        seat = game.getCurrentPlayerIndex();
+        hand = current.getHandMask();
+        discards = discardMask;
+        topDiscard = game.getTopDiscard();
+        drawPileSize = game.getDrawPile().size();
+        hasDrawnThisTurn = current.hasDrawnThisTurn();
+        reverseDirection = game.isReverseDirection();
+        return this;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public long getHand() {
+        return hand;
+    }
+
+    // Every card in the discard pile, including the top card
+    public long getDiscards() {
+        return discards;
+    }
+
+    public Card getTopDiscard() {
+        return topDiscard;
+    }
+
+    public int getPlayerCount() {
+        return handSizes.length;
+    }
+
+    public int getHandSize(int seat) {
+        return handSizes[seat];
+    }
+
+    public int getDrawPileSize() {
+        return drawPileSize;
+    }
+
+    public boolean hasDrawnThisTurn() {
+        return hasDrawnThisTurn;
+    }
+
+    public boolean isReverseDirection() {
+        return reverseDirection;
+    }
+
+    public long getPlayableCards() {
+        return hand & Rules.legalResponses(topDiscard);
+    }
+
+    // Cards this player has not seen: held by opponents or still in the draw pile
+    public long getUnseenCards() {
+        return Hand.FULL_DECK & ~hand & ~discards;
+    }
+}
\ No newline at end of file
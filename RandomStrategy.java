@@ -0,0 +1,32 @@
+import java.util.SplittableRandom;
+
+/*
+ * Picks uniformly among the legal moves. A floor to rank the other strategies against; one
+ * instance must not be shared between threads.
+ */
+public class RandomStrategy implements Strategy {
+    private final SplittableRandom random;
+
+    public RandomStrategy() {
+        this(new SplittableRandom());
+    }
+
+    public RandomStrategy(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public Move chooseMove(PlayerView view) {
+        long legal = Rules.legalMoves(view.getHand(), view.getTopDiscard(), view.hasDrawnThisTurn());
+        int skip = random.nextInt(Long.bitCount(legal));
+        for (int i = 0; i < skip; i++) {
+            legal &= legal - 1;
+        }
+        return Move.ofIndex(Long.numberOfTrailingZeros(legal));
+    }
+
+    @Override
+    public String getName() {
+        return "random";
+    }
+}
\ No newline at end of file
@@ -1,23 +1,52 @@
 public class Rules {
     public static final int INITIAL_CARDS_PER_PLAYER = 5;
+
+    // LEGAL_RESPONSES[top] is the mask of cards that may be played on the card with ordinal top:
+    // every eight, plus every card sharing its rank or suit
+    private static final long[] LEGAL_RESPONSES = new long[Card.CARD_COUNT];
+
+    static {
+        for (int ordinal = 0; ordinal < Card.CARD_COUNT; ordinal++) {
+            Card top = Card.of(ordinal);
+            LEGAL_RESPONSES[ordinal] = Hand.EIGHTS
+                    | Hand.RANK_MASKS[top.getRankIndex()]
+                    | Hand.SUIT_MASKS[top.getSuitIndex()];
+        }
+    }
+
+    public static long legalResponses(Card topDiscard) {
+        return LEGAL_RESPONSES[topDiscard.getOrdinal()];
+    }
     
     public static boolean isValidPlay(Card cardToPlay, Card topDiscard) {
-        if (cardToPlay.getRank().equals("8")) {
-            return true;
+        return (LEGAL_RESPONSES[topDiscard.getOrdinal()] & Hand.bit(cardToPlay)) != 0;
+    }
+    
+    /*
+     * Legal moves as a mask of Move indexes: any playable card; a draw if the player has not drawn
+     * yet this turn; a pass only after drawing and only when nothing can be played.
+     */
+    public static long legalMoves(long hand, Card topDiscard, boolean hasDrawnThisTurn) {
+        long plays = hand & legalResponses(topDiscard);
+        if (!hasDrawnThisTurn) {
+            return plays | (1L << Move.DRAW_INDEX);
         }
-
-        return cardToPlay.getRank().equals(topDiscard.getRank()) || 
-               cardToPlay.getSuit().equals(topDiscard.getSuit());
+        return plays != 0 ? plays : 1L << Move.PASS_INDEX;
     }
     
     public static boolean isGameOver(Player currentPlayer, Deck drawPile) {
+        return isGameOver(currentPlayer, drawPile, null);
+    }
+
+    // With the reshuffle house rule an empty draw pile only ends the game once there are no discards to refill it
+    public static boolean isGameOver(Player currentPlayer, Deck drawPile, Deck reshuffleFrom) {
 
         if (currentPlayer.hasWon()) {
             return true;
         }
 
         if (drawPile.isEmpty()) {
-            return true;
+            return reshuffleFrom == null || reshuffleFrom.size() <= 1;
         }
         
         return false;
@@ -39,7 +68,7 @@ public class Rules {
     }
     
     public static boolean canPlayerMakeValidMove(Player player, Card topDiscard) {
-        return player.canPlay(topDiscard);
+        return (player.getHandMask() & legalResponses(topDiscard)) != 0;
     }
     
     public static int getNextPlayerIndex(int currentPlayerIndex, int totalPlayers, boolean reverseDirection) {
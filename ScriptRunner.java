@@ -0,0 +1,221 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Runs many commands in one JVM, from a file or typed at a prompt:
+ *   java Main --script game_commands.txt [--group-commit [commands]]
+ *   java Main --repl [--group-commit [commands]]
+ *
+ * Each line is one command written as on the command line, with or without the leading
+ * "java Main"; script lines that are not commands are skipped. Simulations, tournaments and
+ * the modes that run their own loop (--daemon, --http, --script, --repl) are refused, so a
+ * script cannot start hours of work or a server by accident. Passwords are read from standard input as usual. Games stay in memory between
+ * commands, so a command only reads a game when another process has changed it.
+ *
+ * Every command saves its game as it does on its own. With --group-commit, saves are instead
+ * batched: changed games are written once every so many commands (DEFAULT_GROUP_SIZE unless
+ * given), at the end, and on "commit" in the REPL.
+ */
+public class ScriptRunner {
+    public static final int DEFAULT_GROUP_SIZE = 100;
+    private static final String PROMPT = "crazy-eights> ";
+
+    private GroupCommit groupCommit = null;
+    private int groupSize = DEFAULT_GROUP_SIZE;
+    private int uncommitted = 0;
+    private int commands = 0;
+
+    public static void main(String[] args) {
+        String script = null;
+        boolean repl = false;
+        ScriptRunner runner = new ScriptRunner();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--script":
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        script = args[++i];
+                    }
+                    break;
+                case "--repl":
+                    repl = true;
+                    break;
+                case "--group-commit":
+                    runner.groupCommit = new GroupCommit();
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        try {
+                            runner.groupSize = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            runner.groupSize = 0;
+                        }
+                        if (runner.groupSize <= 0) {
+                            System.err.println("Invalid group size: " + args[i]);
+                            return;
+                        }
+                    }
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        if (script == null && !repl) {
+            System.err.println("Script not specified. Use --script <file> or --repl");
+            return;
+        }
+
+        GameCache.setEnabled(true);
+        long start = System.nanoTime();
+        try {
+            if (repl) {
+                runner.repl();
+            } else {
+                runner.script(script);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading commands: " + e.getMessage());
+        } finally {
+            runner.commit();
+        }
+        if (!repl) {
+            System.out.printf("Ran %d commands in %.1f ms%n", runner.commands, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    private void script(String file) throws IOException {
+        try (BufferedReader lines = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                String[] args = parse(line);
+                if (args != null) {
+                    run(args);
+                }
+            }
+        }
+    }
+
+    private void repl() throws IOException {
+        System.out.println("Crazy Eights. Type commands as on the command line (--play 7H --user alice --game my_game),");
+        System.out.println("\"commit\" to save batched moves, \"exit\" to quit.");
+        while (true) {
+            System.out.print(PROMPT);
+            System.out.flush();
+            String line = ConsoleRouter.readLine();
+            if (line == null) {
+                System.out.println();
+                return;
+            }
+
+            String command = line.trim();
+            if (command.isEmpty() || command.startsWith("#")) {
+                continue;
+            }
+            if (command.equals("exit") || command.equals("quit")) {
+                return;
+            }
+            if (command.equals("commit")) {
+                commit();
+                continue;
+            }
+
+            String[] args = parse(command);
+            if (args == null) {
+                System.err.println("Not a command: " + command);
+            } else {
+                run(args);
+            }
+        }
+    }
+
+    private void run(String[] args) {
+        if (args.length == 0) {
+            return;
+        }
+        commands++;
+        switch (args[0]) {
+            case "--simulate":
+            case "--tournament":
+            case "--daemon":
+            case "--http":
+            case "--script":
+            case "--repl":
+                System.err.println(args[0] + " cannot be run from a script.");
+                return;
+        }
+
+        CommandHandler handler = new CommandHandler(args);
+        handler.setGroupCommit(groupCommit);
+        // A script runs locally as the shell user, like a single command does
+        handler.useStoredSessions();
+        try {
+            handler.execute();
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+
+        if (groupCommit != null && ++uncommitted >= groupSize) {
+            commit();
+        }
+    }
+
+    private void commit() {
+        uncommitted = 0;
+        if (groupCommit == null) {
+            return;
+        }
+        try {
+            groupCommit.commit();
+        } catch (IOException e) {
+            // Already reported per game
+        }
+    }
+
+    /*
+     * The arguments of a command line, dropping a leading "java ... Main", or null if the line
+     * is not a command. Quotes group words, as in a shell.
+     */
+    static String[] parse(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = null;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    word.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                word = word == null ? new StringBuilder() : word;
+            } else if (Character.isWhitespace(c)) {
+                if (word != null) {
+                    words.add(word.toString());
+                    word = null;
+                }
+            } else {
+                word = word == null ? new StringBuilder() : word;
+                word.append(c);
+            }
+        }
+        if (word != null) {
+            words.add(word.toString());
+        }
+
+        if (words.isEmpty()) {
+            return null;
+        }
+        if (words.get(0).equals("java")) {
+            int main = words.indexOf("Main");
+            return main < 0 ? null : words.subList(main + 1, words.size()).toArray(new String[0]);
+        }
+        return words.get(0).startsWith("--") ? words.toArray(new String[0]) : null;
+    }
+}
\ No newline at end of file
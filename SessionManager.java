@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/*
+ * Signed, expiring session tokens, so a logged-in player's commands skip the password prompt
+ * and the password hash.
+ *
+ * A token is
+ *   v1.<user>.<issued ms>.<expires ms>.<nonce>.<HMAC-SHA256 over game and all of the above>
+ * with user, nonce and MAC in unpadded Base64url. Each game has its own random key
+ * (session.key), so a token is only good for the game it was issued for. Checking one is a
+ * single HMAC plus a lookup in the game's revocation map: logging out, logging in again or
+ * being removed revokes every token of that user issued until then. The map is kept in memory
+ * and only re-read when revoked.txt changes.
+ *
+ * The latest token of each user is kept in tokens/<user>.token (owner-only where the file
+ * system allows it) and, in a long-running process, in memory as well.
+ */
+public class SessionManager {
+    public static final long DEFAULT_TTL_MINUTES = 12 * 60;
+
+    private static final String VERSION = "v1";
+    private static final String KEY_FILE = "session.key";
+    private static final String REVOKED_FILE = "revoked.txt";
+    private static final String TOKEN_DIRECTORY = "tokens";
+    private static final String TOKEN_SUFFIX = ".token";
+    private static final int KEY_BYTES = 32;
+    private static final int NONCE_BYTES = 12;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final Map<String, SecretKeySpec> KEYS = new ConcurrentHashMap<>();
+    private static final Map<String, Revocations> REVOCATIONS = new ConcurrentHashMap<>();
+    // Latest token per "game/user", so a resident process does not re-read token files
+    private static final Map<String, String> TOKENS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Mac> MACS = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    });
+
+    // Per user, the newest issue time that is revoked
+    private static class Revocations {
+        final Map<String, Long> cutoffs = new ConcurrentHashMap<>();
+        long size = -1;
+        long lastModified;
+    }
+
+    // Issue a token for a user whose password has already been checked, and store it as theirs
+    public static String login(String gameName, String username, long ttlMinutes) throws IOException {
+        // Tokens from earlier logins stop working, also those issued in the same millisecond
+        long issued = revokeAll(gameName, username) + 1;
+
+        byte[] nonce = new byte[NONCE_BYTES];
+        RANDOM.nextBytes(nonce);
+        String body = VERSION + "." + ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8))
+                + "." + issued + "." + (issued + ttlMinutes * 60_000L) + "." + ENCODER.encodeToString(nonce);
+        String token = body + "." + ENCODER.encodeToString(sign(gameName, body));
+
+        Path directory = Paths.get(gameName, TOKEN_DIRECTORY);
+        Files.createDirectories(directory);
+        writePrivate(directory.resolve(username + TOKEN_SUFFIX), token.getBytes(StandardCharsets.UTF_8), true);
+        TOKENS.put(gameName + "/" + username, token);
+        return token;
+    }
+
+    // Revoke every token of the user issued so far and forget the stored one
+    public static void logout(String gameName, String username) throws IOException {
+        revokeAll(gameName, username);
+        TOKENS.remove(gameName + "/" + username);
+        Files.deleteIfExists(Paths.get(gameName, TOKEN_DIRECTORY, username + TOKEN_SUFFIX));
+    }
+
+    // The user's stored token, or null if they have not logged in
+    public static String findToken(String gameName, String username) throws IOException {
+        String token = TOKENS.get(gameName + "/" + username);
+        if (token != null) {
+            return token;
+        }
+        try {
+            return new String(Files.readAllBytes(Paths.get(gameName, TOKEN_DIRECTORY, username + TOKEN_SUFFIX)),
+                    StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // The user a token claims to be for, or null if it is malformed; only validate() vouches for it
+    public static String userOf(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 6) {
+            return null;
+        }
+        try {
+            return new String(DECODER.decode(parts[1]), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Whether the token was issued by this game to this user, has not expired and is not revoked
+    public static boolean validate(String gameName, String username, String token) throws IOException {
+        String[] parts = token.split("\\.");
+        if (parts.length != 6 || !parts[0].equals(VERSION)) {
+            return false;
+        }
+
+        long issued;
+        long expires;
+        try {
+            if (!new String(DECODER.decode(parts[1]), StandardCharsets.UTF_8).equals(username)) {
+                return false;
+            }
+            issued = Long.parseLong(parts[2]);
+            expires = Long.parseLong(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (System.currentTimeMillis() >= expires) {
+            return false;
+        }
+
+        byte[] mac;
+        try {
+            mac = DECODER.decode(parts[5]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        String body = token.substring(0, token.lastIndexOf('.'));
+        if (!MessageDigest.isEqual(mac, sign(gameName, body))) {
+            return false;
+        }
+
+        Long cutoff = revocations(gameName).cutoffs.get(username);
+        return cutoff == null || issued > cutoff;
+    }
+
+    private static byte[] sign(String gameName, String body) throws IOException {
+        Mac mac = MACS.get();
+        try {
+            mac.init(key(gameName));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot use session key: " + e.getMessage(), e);
+        }
+        mac.update(gameName.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The game's signing key, created on first use
+    private static SecretKeySpec key(String gameName) throws IOException {
+        SecretKeySpec cached = KEYS.get(gameName);
+        if (cached != null) {
+            return cached;
+        }
+
+        Path keyFile = Paths.get(gameName, KEY_FILE);
+        if (!Files.exists(keyFile)) {
+            byte[] fresh = new byte[KEY_BYTES];
+            RANDOM.nextBytes(fresh);
+            try {
+                writePrivate(keyFile, fresh, false);
+            } catch (FileAlreadyExistsException e) {
+                // Another process created it first; its key is complete, so use theirs
+            }
+        }
+
+        byte[] bytes = Files.readAllBytes(keyFile);
+        if (bytes.length != KEY_BYTES) {
+            throw new IOException("Corrupt session key: " + keyFile);
+        }
+        SecretKeySpec key = new SecretKeySpec(bytes, "HmacSHA256");
+        KEYS.put(gameName, key);
+        return key;
+    }
+
+    /*
+     * Revoke every token of the user issued so far, returning the cutoff. Tokens are issued just
+     * after the cutoff, which may be ahead of the clock, so the cutoff always moves past the last
+     * one even within a millisecond.
+     */
+    private static long revokeAll(String gameName, String username) throws IOException {
+        Long previous = revocations(gameName).cutoffs.get(username);
+        long cutoff = Math.max(System.currentTimeMillis(), previous == null ? 0 : previous + 1);
+        revoke(gameName, username, cutoff);
+        return cutoff;
+    }
+
+    private static void revoke(String gameName, String username, long issuedUpTo) throws IOException {
+        Path file = Paths.get(gameName, REVOKED_FILE);
+        Files.createDirectories(file.getParent());
+        Files.write(file, List.of(username + "," + issuedUpTo), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        revocations(gameName).cutoffs.merge(username, issuedUpTo, Math::max);
+    }
+
+    // The game's revocations, re-read only when revoked.txt has changed since last time
+    private static Revocations revocations(String gameName) throws IOException {
+        Path file = Paths.get(gameName, REVOKED_FILE);
+        Revocations cached = REVOCATIONS.computeIfAbsent(gameName, name -> new Revocations());
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return cached;
+        }
+
+        synchronized (cached) {
+            if (cached.size == attributes.size() && cached.lastModified == attributes.lastModifiedTime().toMillis()) {
+                return cached;
+            }
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int comma = line.lastIndexOf(',');
+                if (comma > 0) {
+                    try {
+                        cached.cutoffs.merge(line.substring(0, comma), Long.parseLong(line.substring(comma + 1)), Math::max);
+                    } catch (NumberFormatException e) {
+                        // A torn line from a crash; the user's other lines still count
+                    }
+                }
+            }
+            cached.size = attributes.size();
+            cached.lastModified = attributes.lastModifiedTime().toMillis();
+            return cached;
+        }
+    }
+
+    /*
+     * Write the whole file under a temporary name, created owner-only where the file system
+     * allows it, then move it into place, so no one sees it partly written or readable by others.
+     * Without replace, an existing file is kept and FileAlreadyExistsException thrown.
+     */
+    private static void writePrivate(Path file, byte[] data, boolean replace) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp;
+        try {
+            temp = Files.createTempFile(file.getParent(), file.getFileName() + ".", ".tmp",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system; the file keeps its default permissions
+            temp = Files.createTempFile(file.getParent(), file.getFileName() + ".", ".tmp");
+        }
+        try {
+            Files.write(temp, data);
+            if (replace) {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                // A link is only made if the name is free, all at once
+                try {
+                    Files.createLink(file, temp);
+                } catch (UnsupportedOperationException e) {
+                    Files.move(temp, file);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
\ No newline at end of file
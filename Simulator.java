@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Headless Monte Carlo simulator for tuning house rules. Bots play complete games directly
+ * against Game with no file I/O, spread over a fork-join pool.
+ *
+ * Every batch of games gets its own SplittableRandom split from the root seed, which deals its
+ * games and seeds its bots, so threads never share a generator and a run with the same options
+ * always produces the same statistics (as long as no bot searches against the clock).
+ */
+public class Simulator {
+    private static final int GAMES_PER_TASK = 2048;
+    // Bucket width for the winner's point histogram
+    private static final int POINT_BUCKET = 10;
+    private static final int POINT_BUCKETS = 41;
+    // Safety net for house rules that can stall a game; such games are scored by points
+    private static final int MAX_MOVES = 10_000;
+
+    private int games = 100_000;
+    private int players = 2;
+    private int cardsPerPlayer = Rules.INITIAL_CARDS_PER_PLAYER;
+    private boolean reshuffleDiscards = false;
+    private long seed = new SplittableRandom().nextLong();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    // Strategy specs assigned to seats in turn (see Strategy.fromSpec)
+    private String[] strategySpecs = {"greedy"};
+
+    /*
+     * Prompt: Run with
+     *   java Main --simulate [--games N] [--players N] [--hand-size N] [--reshuffle]
+     *                        [--seed N] [--threads N] [--strategies greedy,ismcts:20]
+     */
+    public static void main(String[] args) {
+        Simulator simulator = new Simulator();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--games":
+                        simulator.games = Integer.parseInt(args[++i]);
+                        break;
+                    case "--players":
+                        simulator.players = Integer.parseInt(args[++i]);
+                        break;
+                    case "--hand-size":
+                        simulator.cardsPerPlayer = Integer.parseInt(args[++i]);
+                        break;
+                    case "--reshuffle":
+                        simulator.reshuffleDiscards = true;
+                        break;
+                    case "--seed":
+                        simulator.seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--threads":
+                        simulator.parallelism = Integer.parseInt(args[++i]);
+                        break;
+                    case "--strategies":
+                        simulator.strategySpecs = args[++i].split(",");
+                        break;
+                    default:
+                        System.err.println("Unknown simulation option: " + args[i]);
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid simulation options: " + e.getMessage());
+            return;
+        }
+
+        if (simulator.players < 2 || simulator.players > GameState.MAX_PLAYERS) {
+            System.err.println("A simulation needs 2 to " + GameState.MAX_PLAYERS + " players.");
+            return;
+        }
+        if (simulator.players * simulator.cardsPerPlayer >= Card.CARD_COUNT) {
+            System.err.println("Not enough cards to deal " + simulator.cardsPerPlayer + " to " + simulator.players + " players.");
+            return;
+        }
+
+        try {
+            simulator.seatStrategies(new SplittableRandom());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        simulator.run().print(System.out);
+    }
+
+    public Tally run() {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            Tally tally = pool.invoke(new Batch(0, games, new SplittableRandom(seed)));
+            tally.elapsedNanos = System.nanoTime() - start;
+            return tally;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Strategy[] seatStrategies(SplittableRandom random) {
+        Strategy[] strategies = new Strategy[players];
+        for (int seat = 0; seat < players; seat++) {
+            strategies[seat] = Strategy.fromSpec(strategySpecs[seat % strategySpecs.length], random.split());
+        }
+        return strategies;
+    }
+
+    public static class Tally {
+        long games;
+        long moves;
+        long emptiedHand;
+        long decidedByPoints;
+        long stalled;
+        long elapsedNanos;
+        final long[] winsBySeat;
+        final long[] pointsBySeat;
+        final long[] winnerPoints = new long[POINT_BUCKETS];
+
+        Tally(int players) {
+            winsBySeat = new long[players];
+            pointsBySeat = new long[players];
+        }
+
+        void merge(Tally other) {
+            games += other.games;
+            moves += other.moves;
+            emptiedHand += other.emptiedHand;
+            decidedByPoints += other.decidedByPoints;
+            stalled += other.stalled;
+            for (int i = 0; i < winsBySeat.length; i++) {
+                winsBySeat[i] += other.winsBySeat[i];
+                pointsBySeat[i] += other.pointsBySeat[i];
+            }
+            for (int i = 0; i < winnerPoints.length; i++) {
+                winnerPoints[i] += other.winnerPoints[i];
+            }
+        }
+
+        void print(java.io.PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.printf("Games: %d in %.2fs (%.0f games/sec, %.1f moves/game)%n",
+                    games, seconds, games / seconds, (double) moves / games);
+            out.printf("Ended by empty hand: %.2f%%, by points: %.2f%%, stalled: %d%n",
+                    100.0 * emptiedHand / games, 100.0 * decidedByPoints / games, stalled);
+
+            out.println("Seat  Win rate   Avg points left");
+            for (int i = 0; i < winsBySeat.length; i++) {
+                out.printf("%4d  %7.2f%%  %8.2f%n", i + 1, 100.0 * winsBySeat[i] / games, (double) pointsBySeat[i] / games);
+            }
+
+            if (decidedByPoints > 0) {
+                out.printf("Winner's points when decided by points: p50 %d, p90 %d, p99 %d%n",
+                        percentile(0.50), percentile(0.90), percentile(0.99));
+            }
+        }
+
+        // Upper edge of the histogram bucket holding the given fraction of point-decided games
+        private int percentile(double fraction) {
+            long target = (long) Math.ceil(fraction * decidedByPoints);
+            long seen = 0;
+            for (int i = 0; i < winnerPoints.length; i++) {
+                seen += winnerPoints[i];
+                if (seen >= target) {
+                    return (i + 1) * POINT_BUCKET;
+                }
+            }
+            return POINT_BUCKETS * POINT_BUCKET;
+        }
+    }
+
+    private class Batch extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        Batch(int from, int to, SplittableRandom random) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                return playBatch();
+            }
+
+            int middle = (from + to) >>> 1;
+            Batch left = new Batch(from, middle, random.split());
+            Batch right = new Batch(middle, to, random.split());
+            left.fork();
+            Tally tally = right.compute();
+            tally.merge(left.join());
+            return tally;
+        }
+
+        // One Game object and one view are reused for every game in the batch
+        private Tally playBatch() {
+            List<String> names = new ArrayList<>(players);
+            for (int i = 0; i < players; i++) {
+                names.add("seat" + (i + 1));
+            }
+
+            Game game = new Game("simulation", names, new Deck());
+            game.setReshuffleDiscards(reshuffleDiscards);
+            List<Player> seats = game.getPlayers();
+            Strategy[] strategies = seatStrategies(random);
+            PlayerView view = new PlayerView(players);
+            Tally tally = new Tally(players);
+
+            for (int i = from; i < to; i++) {
+                game.initializeGame(Deck.DEFAULT_SHUFFLE_ALGORITHM, random.nextLong(), cardsPerPlayer);
+                int moves = playOut(game, strategies, view);
+                record(tally, game, seats, moves);
+            }
+            return tally;
+        }
+    }
+
+    // Lets each seat's strategy move until the game ends, refilling the given view for every move
+    static int playOut(Game game, Strategy[] strategies, PlayerView view) {
+        int moves = 0;
+        while (!game.isGameOver() && moves < MAX_MOVES) {
+            Move move = strategies[game.getCurrentPlayerIndex()].chooseMove(view.update(game));
+            if (!game.makeMove(move)) {
+                break;
+            }
+            moves++;
+        }
+        return moves;
+    }
+
+    private static void record(Tally tally, Game game, List<Player> seats, int moves) {
+        tally.games++;
+        tally.moves += moves;
+        if (!game.isGameOver()) {
+            tally.stalled++;
+        }
+
+        Player winner = null;
+        for (Player seat : seats) {
+            if (seat.hasWon()) {
+                winner = seat;
+            }
+        }
+
+        if (winner != null) {
+            tally.emptiedHand++;
+        } else {
+            winner = Rules.determineWinnerByPoints(seats.toArray(new Player[0]));
+            tally.decidedByPoints++;
+            int bucket = Math.min(winner.calculatePoints() / POINT_BUCKET, POINT_BUCKETS - 1);
+            tally.winnerPoints[bucket]++;
+        }
+
+        for (int i = 0; i < seats.size(); i++) {
+            Player seat = seats.get(i);
+            tally.pointsBySeat[i] += seat.calculatePoints();
+            if (seat == winner) {
+                tally.winsBySeat[i]++;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+import java.io.IOException;
+
+/*
+ * Thrown when a command tries to save a game that another command has saved since it was
+ * loaded. Nothing has been written; the command can reload the game and try again.
+ */
+public class StaleStateException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    public StaleStateException(String gameName, long expectedVersion, long actualVersion) {
+        super("Game '" + gameName + "' changed while this command ran (version " + expectedVersion
+                + ", now " + actualVersion + ")");
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
\ No newline at end of file
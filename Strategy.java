@@ -0,0 +1,44 @@
+import java.util.SplittableRandom;
+
+/*
+ * A computer player. Given what the player whose turn it is can see, return the move to make;
+ * the move must be legal for that view.
+ */
+public interface Strategy {
+    Move chooseMove(PlayerView view);
+
+    String getName();
+
+    /*
+     * Build a strategy from its name as used on the command line and in users.txt:
+     *   greedy          GreedyStrategy
+     *   random          RandomStrategy
+     *   ismcts          IsmctsStrategy with the default time budget
+     *   ismcts:<ms>     IsmctsStrategy with a per-move budget in milliseconds
+     */
+    static Strategy fromSpec(String spec) {
+        return fromSpec(spec, new SplittableRandom());
+    }
+
+    // As above, drawing every random choice the strategy makes from the given generator
+    static Strategy fromSpec(String spec, SplittableRandom random) {
+        String[] parts = spec.split(":", 2);
+        switch (parts[0]) {
+            case "greedy":
+                return new GreedyStrategy();
+            case "random":
+                return new RandomStrategy(random);
+            case "ismcts":
+                if (parts.length == 1) {
+                    return new IsmctsStrategy(IsmctsStrategy.DEFAULT_BUDGET_MILLIS, random);
+                }
+                try {
+                    return new IsmctsStrategy(Long.parseLong(parts[1]), random);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid time budget in strategy: " + spec);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + spec);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,646 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Ranks strategies against each other. Every matchup seats a lineup of strategies and plays
+ * many games through Game and Rules, rotating the seats each game so nobody keeps the first
+ * turn. Pairings are either round-robin over every lineup or Swiss rounds, where entrants with
+ * similar scores meet and nobody plays the same opponent twice if it can be avoided.
+ *
+ * Games are played in chunks on a work-stealing pool. Only a bounded number of chunks is in
+ * flight at once and each one hands its per-game results to a writer thread that streams them
+ * to CSV or JSONL, so memory stays flat however many games are played. The per-game seed only
+ * depends on the tournament seed, the matchup and the game number, never on the scheduling.
+ * It fixes the deal and, through a stream split from it, every random choice the bots make, so
+ * the same seed replays a game exactly unless a bot searches against the clock (ismcts).
+ */
+public class Tournament {
+    private static final int GAMES_PER_TASK = 1024;
+    // Two-sided 95% normal quantile for the Wilson score interval
+    private static final double Z_95 = 1.959963984540054;
+
+    private String[] strategySpecs = {"greedy", "random"};
+    private int[] seatCounts = {2};
+    private boolean swiss = false;
+    // Swiss rounds; 0 picks enough rounds to separate the entrants (ceil(log2 n))
+    private int rounds = 0;
+    private int gamesPerMatch = 1000;
+    private int cardsPerPlayer = Rules.INITIAL_CARDS_PER_PLAYER;
+    private boolean reshuffleDiscards = false;
+    private long seed = new SplittableRandom().nextLong();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private String output = null;
+    private boolean jsonl = false;
+
+    /*
+     * Prompt: Run with
+     *   java Main --tournament --strategies greedy,random,ismcts:20 [--seats 2,3,4]
+     *                          [--pairing round-robin|swiss] [--rounds N] [--games N per matchup]
+     *                          [--hand-size N] [--reshuffle] [--seed N] [--threads N]
+     *                          [--output results.csv|results.jsonl] [--format csv|jsonl]
+     */
+    public static void main(String[] args) {
+        Tournament tournament = new Tournament();
+        String format = null;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--strategies":
+                        tournament.strategySpecs = args[++i].split(",");
+                        break;
+                    case "--seats":
+                        tournament.seatCounts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                        break;
+                    case "--pairing":
+                        String pairing = args[++i];
+                        if (!pairing.equals("swiss") && !pairing.equals("round-robin")) {
+                            System.err.println("Unknown pairing: " + pairing);
+                            return;
+                        }
+                        tournament.swiss = pairing.equals("swiss");
+                        break;
+                    case "--rounds":
+                        tournament.rounds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--games":
+                        tournament.gamesPerMatch = Integer.parseInt(args[++i]);
+                        break;
+                    case "--hand-size":
+                        tournament.cardsPerPlayer = Integer.parseInt(args[++i]);
+                        break;
+                    case "--reshuffle":
+                        tournament.reshuffleDiscards = true;
+                        break;
+                    case "--seed":
+                        tournament.seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--threads":
+                        tournament.parallelism = Integer.parseInt(args[++i]);
+                        break;
+                    case "--output":
+                        tournament.output = args[++i];
+                        break;
+                    case "--format":
+                        format = args[++i];
+                        break;
+                    default:
+                        System.err.println("Unknown tournament option: " + args[i]);
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid tournament options: " + e.getMessage());
+            return;
+        }
+
+        if (format != null && !format.equals("csv") && !format.equals("jsonl")) {
+            System.err.println("Unknown result format: " + format);
+            return;
+        }
+        tournament.jsonl = format != null ? format.equals("jsonl")
+                : tournament.output != null && tournament.output.endsWith(".jsonl");
+
+        String problem = tournament.validate();
+        if (problem != null) {
+            System.err.println(problem);
+            return;
+        }
+
+        try {
+            tournament.run(System.out);
+        } catch (IOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage() + ": " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Tournament interrupted.");
+        }
+    }
+
+    private String validate() {
+        if (strategySpecs.length < 2) {
+            return "A tournament needs at least two strategies.";
+        }
+        if (gamesPerMatch < 1 || parallelism < 1) {
+            return "Games and thread count must be positive.";
+        }
+        for (String spec : strategySpecs) {
+            try {
+                Strategy.fromSpec(spec);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }
+        for (int seats : seatCounts) {
+            if (seats < 2 || seats > GameState.MAX_PLAYERS || seats * cardsPerPlayer >= Card.CARD_COUNT) {
+                return "Not enough cards to deal " + cardsPerPlayer + " to " + seats + " players.";
+            }
+        }
+        if (swiss && (seatCounts.length != 1 || seatCounts[0] > strategySpecs.length)) {
+            return "Swiss pairing needs a single seat count no larger than the number of strategies.";
+        }
+        return null;
+    }
+
+    public void run(PrintStream out) throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ResultWriter writer = output == null ? null : new ResultWriter(output, jsonl, parallelism * 2);
+        Runner runner = new Runner(pool, writer);
+        long start = System.nanoTime();
+        List<Matchup> matchups = new ArrayList<>();
+
+        try {
+            if (swiss) {
+                runSwiss(runner, matchups, out);
+            } else {
+                for (int seats : seatCounts) {
+                    for (int[] lineup : lineups(strategySpecs.length, seats)) {
+                        matchups.add(new Matchup(matchups.size() + 1, lineup, strategySpecs.length));
+                    }
+                }
+                runner.play(matchups);
+            }
+        } finally {
+            pool.shutdown();
+            if (writer != null) {
+                writer.finish();
+            }
+        }
+
+        long games = 0;
+        for (Matchup matchup : matchups) {
+            games += matchup.games;
+            if (!swiss) {
+                matchup.print(out);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.printf("Games: %d in %.2fs (%.0f games/sec)%n", games, seconds, games / seconds);
+        if (output != null) {
+            out.println("Per-game results written to " + output);
+        }
+    }
+
+    // Swiss rounds: group entrants with similar match points, avoiding rematches where possible
+    private void runSwiss(Runner runner, List<Matchup> matchups, PrintStream out) throws InterruptedException {
+        int entrants = strategySpecs.length;
+        int seats = seatCounts[0];
+        int roundCount = rounds > 0 ? rounds : 32 - Integer.numberOfLeadingZeros(entrants - 1);
+        double[] matchPoints = new double[entrants];
+        boolean[][] met = new boolean[entrants][entrants];
+
+        for (int round = 1; round <= roundCount; round++) {
+            Integer[] order = new Integer[entrants];
+            for (int i = 0; i < entrants; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(matchPoints[b], matchPoints[a]));
+
+            List<Matchup> pairings = new ArrayList<>();
+            boolean[] paired = new boolean[entrants];
+            for (int first : order) {
+                if (paired[first]) {
+                    continue;
+                }
+                int[] lineup = new int[seats];
+                int size = 0;
+                lineup[size++] = first;
+                paired[first] = true;
+                for (int pass = 0; pass < 2 && size < seats; pass++) {
+                    for (int candidate : order) {
+                        if (size < seats && !paired[candidate] && (pass == 1 || !meetsAny(met, candidate, lineup, size))) {
+                            lineup[size++] = candidate;
+                            paired[candidate] = true;
+                        }
+                    }
+                }
+                if (size < seats) {
+                    // Too few left to fill a table: a bye scores like a win
+                    for (int i = 0; i < size; i++) {
+                        matchPoints[lineup[i]] += 1;
+                        out.println("Round " + round + ": bye for " + strategySpecs[lineup[i]]);
+                    }
+                    continue;
+                }
+                for (int a : lineup) {
+                    for (int b : lineup) {
+                        met[a][b] = true;
+                    }
+                }
+                pairings.add(new Matchup(matchups.size() + pairings.size() + 1, lineup, entrants));
+            }
+
+            runner.play(pairings);
+            out.println("Round " + round);
+            for (Matchup matchup : pairings) {
+                matchup.print(out);
+                matchup.awardMatchPoints(matchPoints);
+            }
+            matchups.addAll(pairings);
+        }
+
+        long[] games = new long[entrants];
+        long[] wins = new long[entrants];
+        for (Matchup matchup : matchups) {
+            for (int entrant : matchup.lineup) {
+                games[entrant] += matchup.games;
+            }
+            for (int entrant = 0; entrant < entrants; entrant++) {
+                wins[entrant] += matchup.wins[entrant];
+            }
+        }
+
+        Integer[] standings = new Integer[entrants];
+        for (int i = 0; i < entrants; i++) {
+            standings[i] = i;
+        }
+        Arrays.sort(standings, (a, b) -> Double.compare(matchPoints[b], matchPoints[a]));
+        out.println("Standings after " + roundCount + " rounds");
+        for (int entrant : standings) {
+            out.printf("  %-16s %5.1f match points  ", strategySpecs[entrant], matchPoints[entrant]);
+            printWinRate(out, wins[entrant], games[entrant]);
+        }
+    }
+
+    private static boolean meetsAny(boolean[][] met, int candidate, int[] lineup, int size) {
+        for (int i = 0; i < size; i++) {
+            if (met[candidate][lineup[i]]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Every lineup of the given size in which entrants are sorted by index. With enough
+     * entrants each one appears at most once; with fewer entrants than seats some sit twice,
+     * but never all at one table.
+     */
+    static List<int[]> lineups(int entrants, int seats) {
+        List<int[]> lineups = new ArrayList<>();
+        addLineups(lineups, new int[seats], 0, 0, entrants, entrants >= seats);
+        return lineups;
+    }
+
+    private static void addLineups(List<int[]> lineups, int[] lineup, int size, int from, int entrants, boolean distinct) {
+        if (size == lineup.length) {
+            if (lineup[0] != lineup[lineup.length - 1]) {
+                lineups.add(lineup.clone());
+            }
+            return;
+        }
+        for (int entrant = from; entrant < entrants; entrant++) {
+            lineup[size] = entrant;
+            addLineups(lineups, lineup, size + 1, distinct ? entrant + 1 : entrant, entrants, distinct);
+        }
+    }
+
+    // Wilson score interval for a win rate at 95% confidence; stays inside [0, 1] even near the edges
+    static double[] wilsonInterval(long wins, long games) {
+        if (games == 0) {
+            return new double[] {0, 1};
+        }
+        double n = games;
+        double p = wins / n;
+        double z2 = Z_95 * Z_95;
+        double denominator = 1 + z2 / n;
+        double centre = (p + z2 / (2 * n)) / denominator;
+        double halfWidth = Z_95 * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / denominator;
+        return new double[] {Math.max(0, centre - halfWidth), Math.min(1, centre + halfWidth)};
+    }
+
+    private static void printWinRate(PrintStream out, long wins, long games) {
+        double[] interval = wilsonInterval(wins, games);
+        out.printf("%8d wins / %-8d %6.2f%%  95%% CI [%.2f%%, %.2f%%]%n", wins, games,
+                games == 0 ? 0.0 : 100.0 * wins / games, 100 * interval[0], 100 * interval[1]);
+    }
+
+    // Seed of one game: a 64-bit mix of the tournament seed, matchup and game number
+    static long gameSeed(long seed, int matchup, long game) {
+        long z = seed + matchup * 0x9E3779B97F4A7C15L + game * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private class Matchup {
+        final int id;
+        // Entrant index in each seat before rotation
+        final int[] lineup;
+        long games;
+        long moves;
+        // Wins by entrant index; an entrant seated twice wins when either copy does
+        final long[] wins;
+
+        Matchup(int id, int[] lineup, int entrants) {
+            this.id = id;
+            this.lineup = lineup;
+            this.wins = new long[entrants];
+        }
+
+        synchronized void merge(long[] chunkWins, long chunkGames, long chunkMoves) {
+            games += chunkGames;
+            moves += chunkMoves;
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] += chunkWins[i];
+            }
+        }
+
+        // A point for the entrant with the most wins, split on a tie
+        void awardMatchPoints(double[] matchPoints) {
+            long best = -1;
+            int tied = 0;
+            for (int entrant : lineup) {
+                if (wins[entrant] > best) {
+                    best = wins[entrant];
+                    tied = 1;
+                } else if (wins[entrant] == best) {
+                    tied++;
+                }
+            }
+            for (int entrant : lineup) {
+                if (wins[entrant] == best) {
+                    matchPoints[entrant] += 1.0 / tied;
+                }
+            }
+        }
+
+        void print(PrintStream out) {
+            StringBuilder title = new StringBuilder();
+            for (int i = 0; i < lineup.length; i++) {
+                title.append(i == 0 ? "" : " vs ").append(strategySpecs[lineup[i]]);
+            }
+            out.printf("Matchup %d (%d seats, %.1f moves/game): %s%n", id, lineup.length,
+                    games == 0 ? 0.0 : (double) moves / games, title);
+            for (int i = 0; i < lineup.length; i++) {
+                int entrant = lineup[i];
+                if (i > 0 && lineup[i - 1] == entrant) {
+                    continue;
+                }
+                int copies = 0;
+                for (int other : lineup) {
+                    copies += other == entrant ? 1 : 0;
+                }
+                String name = copies > 1 ? strategySpecs[entrant] + " x" + copies : strategySpecs[entrant];
+                out.printf("  %-16s", name);
+                printWinRate(out, wins[entrant], games);
+            }
+        }
+    }
+
+    /*
+     * Feeds matchups to the pool in chunks, never more than a few per worker at once, and
+     * waits for them to finish. A failed chunk stops the run.
+     */
+    private class Runner {
+        private final ForkJoinPool pool;
+        private final ResultWriter writer;
+        private final int maxInFlight = parallelism * 4;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Runner(ForkJoinPool pool, ResultWriter writer) {
+            this.pool = pool;
+            this.writer = writer;
+        }
+
+        void play(List<Matchup> matchups) throws InterruptedException {
+            for (Matchup matchup : matchups) {
+                for (int start = 0; start < gamesPerMatch && failure.get() == null; start += GAMES_PER_TASK) {
+                    int from = start;
+                    int to = Math.min(gamesPerMatch, start + GAMES_PER_TASK);
+                    inFlight.acquire();
+                    pool.execute(() -> {
+                        try {
+                            playChunk(matchup, from, to);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+
+            Throwable t = failure.get();
+            if (t != null) {
+                throw new IllegalStateException("Tournament game failed", t);
+            }
+        }
+
+        // One Game and one view play every game in the chunk; the strategies are seeded per game
+        private void playChunk(Matchup matchup, int from, int to) throws InterruptedException {
+            int seats = matchup.lineup.length;
+            List<String> names = new ArrayList<>(seats);
+            Strategy[] entrants = new Strategy[seats];
+            for (int i = 0; i < seats; i++) {
+                names.add("seat" + (i + 1));
+            }
+
+            Game game = new Game("tournament", names, new Deck());
+            game.setReshuffleDiscards(reshuffleDiscards);
+            GameState state = game.getState();
+            Strategy[] seated = new Strategy[seats];
+            PlayerView view = new PlayerView(seats);
+            long[] wins = new long[strategySpecs.length];
+            long moves = 0;
+            ResultBatch batch = writer == null ? null : new ResultBatch(matchup, from, to - from);
+
+            for (int g = from; g < to; g++) {
+                long gameSeed = gameSeed(seed, matchup.id, g);
+                SplittableRandom bots = new SplittableRandom(gameSeed).split();
+                for (int i = 0; i < seats; i++) {
+                    entrants[i] = Strategy.fromSpec(strategySpecs[matchup.lineup[i]], bots.split());
+                }
+                int rotation = g % seats;
+                for (int seat = 0; seat < seats; seat++) {
+                    seated[seat] = entrants[(seat + rotation) % seats];
+                }
+                game.initializeGame(Deck.DEFAULT_SHUFFLE_ALGORITHM, gameSeed, cardsPerPlayer);
+                int gameMoves = Simulator.playOut(game, seated, view);
+                int winner = state.getWinner();
+
+                wins[matchup.lineup[(winner + rotation) % seats]]++;
+                moves += gameMoves;
+                if (batch != null) {
+                    batch.add(gameSeed, gameMoves, winner, state);
+                }
+            }
+
+            matchup.merge(wins, to - from, moves);
+            if (batch != null) {
+                writer.put(batch);
+            }
+        }
+    }
+
+    // Results of one chunk of games, kept as primitives until the writer formats them
+    private class ResultBatch {
+        final Matchup matchup;
+        final int firstGame;
+        final long[] seeds;
+        final int[] moves;
+        final byte[] winners;
+        // Points left in each seat, seats per game
+        final short[] points;
+        int size;
+
+        ResultBatch(Matchup matchup, int firstGame, int capacity) {
+            this.matchup = matchup;
+            this.firstGame = firstGame;
+            this.seeds = new long[capacity];
+            this.moves = new int[capacity];
+            this.winners = new byte[capacity];
+            this.points = new short[capacity * matchup.lineup.length];
+        }
+
+        void add(long gameSeed, int gameMoves, int winner, GameState state) {
+            int seats = matchup.lineup.length;
+            seeds[size] = gameSeed;
+            moves[size] = gameMoves;
+            winners[size] = (byte) winner;
+            for (int seat = 0; seat < seats; seat++) {
+                points[size * seats + seat] = (short) Hand.points(state.getHand(seat));
+            }
+            size++;
+        }
+
+        String strategyAt(int index, int seat) {
+            int seats = matchup.lineup.length;
+            return strategySpecs[matchup.lineup[(seat + firstGame + index) % seats]];
+        }
+    }
+
+    /*
+     * Streams batches to the results file on its own thread. The queue is bounded, so game
+     * threads wait rather than pile results up when the disk falls behind. After a write error
+     * batches are still taken off the queue and dropped, so no game thread blocks forever.
+     */
+    private static class ResultWriter implements Runnable {
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> queue;
+        private final BufferedWriter out;
+        private final boolean jsonl;
+        private final Thread thread;
+        private IOException error;
+
+        ResultWriter(String path, boolean jsonl, int capacity) throws IOException {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.out = Files.newBufferedWriter(Paths.get(path));
+            this.jsonl = jsonl;
+            if (!jsonl) {
+                out.write("matchup,game,seed,moves,winner_seat,winner,seats,points");
+                out.newLine();
+            }
+            this.thread = new Thread(this, "tournament-writer");
+            thread.start();
+        }
+
+        void put(ResultBatch batch) throws InterruptedException {
+            queue.put(batch);
+        }
+
+        @Override
+        public void run() {
+            StringBuilder line = new StringBuilder(256);
+            try {
+                for (Object next = queue.take(); next != END; next = queue.take()) {
+                    if (error != null) {
+                        continue;
+                    }
+                    try {
+                        write((ResultBatch) next, line);
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void write(ResultBatch batch, StringBuilder line) throws IOException {
+            int seats = batch.matchup.lineup.length;
+            for (int i = 0; i < batch.size; i++) {
+                line.setLength(0);
+                int winner = batch.winners[i];
+                if (jsonl) {
+                    line.append("{\"matchup\":").append(batch.matchup.id)
+                            .append(",\"game\":").append(batch.firstGame + i)
+                            .append(",\"seed\":").append(batch.seeds[i])
+                            .append(",\"moves\":").append(batch.moves[i])
+                            .append(",\"winnerSeat\":").append(winner + 1)
+                            .append(",\"winner\":");
+                    appendJsonString(line, batch.strategyAt(i, winner));
+                    line.append(",\"seats\":[");
+                    for (int seat = 0; seat < seats; seat++) {
+                        line.append(seat == 0 ? "" : ",");
+                        appendJsonString(line, batch.strategyAt(i, seat));
+                    }
+                    line.append("],\"points\":[");
+                    for (int seat = 0; seat < seats; seat++) {
+                        line.append(seat == 0 ? "" : ",").append(batch.points[i * seats + seat]);
+                    }
+                    line.append("]}");
+                } else {
+                    line.append(batch.matchup.id).append(',')
+                            .append(batch.firstGame + i).append(',')
+                            .append(batch.seeds[i]).append(',')
+                            .append(batch.moves[i]).append(',')
+                            .append(winner + 1).append(',')
+                            .append(batch.strategyAt(i, winner)).append(',');
+                    for (int seat = 0; seat < seats; seat++) {
+                        line.append(seat == 0 ? "" : ";").append(batch.strategyAt(i, seat));
+                    }
+                    line.append(',');
+                    for (int seat = 0; seat < seats; seat++) {
+                        line.append(seat == 0 ? "" : ";").append(batch.points[i * seats + seat]);
+                    }
+                }
+                out.append(line);
+                out.newLine();
+            }
+        }
+
+        private static void appendJsonString(StringBuilder line, String value) {
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    line.append('\\');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        }
+
+        // Drain the queue, stop the thread and close the file, reporting any write error
+        void finish() throws IOException, InterruptedException {
+            try {
+                queue.put(END);
+                thread.join();
+            } finally {
+                out.close();
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
\ No newline at end of file
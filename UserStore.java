@@ -0,0 +1,233 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * In-memory index over each game's users.txt.
+ *
+ * The file is parsed once into a username -> hash map and reused for as long as its size and
+ * modification time are unchanged, so credential and user-list lookups do not rescan it.
+ * Removing a user appends a tombstone line ("!username") instead of rewriting the file, so a
+ * username cannot start with "!". Once tombstones and superseded lines outnumber the live users
+ * (and there are at least a few of them) the command that added the last one compacts the file.
+ */
+public class UserStore {
+    private static final String USERS_FILE = "users.txt";
+    private static final String TOMBSTONE_PREFIX = "!";
+    private static final int COMPACTION_THRESHOLD = 16;
+
+    private static final Map<String, Index> INDEXES = new ConcurrentHashMap<>();
+
+    private static class Index {
+        final Map<String, String> hashes = new LinkedHashMap<>();
+        long size;
+        long lastModified;
+        // Lines compaction would drop: tombstones and the lines they or later lines replace
+        int garbage;
+    }
+
+    public static List<String> getUsers(String gameName) throws IOException {
+        Index index = index(gameName);
+        synchronized (index) {
+            return new ArrayList<>(index.hashes.keySet());
+        }
+    }
+
+    public static String getHashedPassword(String gameName, String username) throws IOException {
+        Index index = index(gameName);
+        synchronized (index) {
+            return index.hashes.get(username);
+        }
+    }
+
+    public static boolean hasUser(String gameName, String username) throws IOException {
+        return getHashedPassword(gameName, username) != null;
+    }
+
+    // Replace the user list with just the admin account
+    public static void saveAdminCredentials(String gameName, String hashedPassword) throws IOException {
+        String line = "admin," + hashedPassword;
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        Files.write(usersPath(gameName), List.of(line), StandardCharsets.UTF_8);
+        CommandStats.written(usersPath(gameName).toString(), line.length() + 1);
+        GameEvents.commitFileIo(event, gameName, usersPath(gameName).toString(), GameEvents.WRITE, line.length() + 1);
+        INDEXES.remove(gameName);
+    }
+
+    public static void addUser(String gameName, String username, String hashedPassword) throws IOException {
+        if (username.startsWith(TOMBSTONE_PREFIX)) {
+            throw new IOException("Usernames cannot start with '" + TOMBSTONE_PREFIX + "'.");
+        }
+
+        Index index = append(gameName, username + "," + hashedPassword, updated -> {
+            if (updated.hashes.put(username, hashedPassword) != null) {
+                updated.garbage++;
+            }
+        });
+        compactIfNeeded(gameName, index);
+    }
+
+    public static boolean removeUser(String gameName, String username) throws IOException {
+        if (!hasUser(gameName, username)) {
+            return false;
+        }
+
+        Index index = append(gameName, TOMBSTONE_PREFIX + username, updated -> {
+            updated.hashes.remove(username);
+            updated.garbage += 2;
+        });
+        compactIfNeeded(gameName, index);
+        return true;
+    }
+
+    // Drop the cached index so the next lookup re-reads the file
+    public static void invalidate(String gameName) {
+        INDEXES.remove(gameName);
+    }
+
+    private interface IndexUpdate {
+        void apply(Index index);
+    }
+
+    /*
+     * Append one line and apply the same change to the cached index. If the file had changed
+     * behind our back the cache is dropped instead and rebuilt on the next lookup.
+     */
+    private static Index append(String gameName, String line, IndexUpdate update) throws IOException {
+        Path usersFile = usersPath(gameName);
+        Index index = index(gameName);
+
+        synchronized (index) {
+            BasicFileAttributes before = Files.readAttributes(usersFile, BasicFileAttributes.class);
+            boolean current = matches(index, before);
+
+            GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+            try (BufferedWriter writer = Files.newBufferedWriter(usersFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                writer.write(line);
+                writer.newLine();
+            }
+            CommandStats.written(usersFile.toString(), line.length() + 1);
+            GameEvents.commitFileIo(event, gameName, usersFile.toString(), GameEvents.WRITE, line.length() + 1);
+
+            if (!current) {
+                INDEXES.remove(gameName, index);
+                return null;
+            }
+
+            update.apply(index);
+            BasicFileAttributes after = Files.readAttributes(usersFile, BasicFileAttributes.class);
+            index.size = after.size();
+            index.lastModified = after.lastModifiedTime().toMillis();
+            return index;
+        }
+    }
+
+    private static Index index(String gameName) throws IOException {
+        Path usersFile = usersPath(gameName);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(usersFile, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            INDEXES.remove(gameName);
+            throw e;
+        }
+
+        Index cached = INDEXES.get(gameName);
+        if (cached != null) {
+            synchronized (cached) {
+                if (matches(cached, attributes)) {
+                    return cached;
+                }
+            }
+        }
+
+        Index index = parse(gameName, usersFile);
+        INDEXES.put(gameName, index);
+        return index;
+    }
+
+    private static Index parse(String gameName, Path usersFile) throws IOException {
+        GameEvents.FileIoEvent event = GameEvents.beginFileIo();
+        Index index = new Index();
+        BasicFileAttributes attributes = Files.readAttributes(usersFile, BasicFileAttributes.class);
+
+        for (String line : Files.readAllLines(usersFile, StandardCharsets.UTF_8)) {
+            if (line.startsWith(TOMBSTONE_PREFIX)) {
+                boolean removed = index.hashes.remove(line.substring(TOMBSTONE_PREFIX.length())) != null;
+                index.garbage += removed ? 2 : 1;
+                continue;
+            }
+            String[] parts = line.split(",");
+            if (parts.length == 2 && index.hashes.put(parts[0], parts[1]) != null) {
+                index.garbage++;
+            }
+        }
+
+        index.size = attributes.size();
+        index.lastModified = attributes.lastModifiedTime().toMillis();
+        CommandStats.read(usersFile.toString(), attributes.size());
+        GameEvents.commitFileIo(event, gameName, usersFile.toString(), GameEvents.READ, attributes.size());
+        return index;
+    }
+
+    // Rewrite the file with only the live users once it is mostly garbage, unless it changed since it was indexed
+    private static void compactIfNeeded(String gameName, Index index) {
+        if (index == null) {
+            return;
+        }
+
+        Path usersFile = usersPath(gameName);
+        synchronized (index) {
+            if (index.garbage < COMPACTION_THRESHOLD || index.garbage <= index.hashes.size()) {
+                return;
+            }
+            try {
+                if (!matches(index, Files.readAttributes(usersFile, BasicFileAttributes.class))) {
+                    return;
+                }
+
+                List<String> lines = new ArrayList<>(index.hashes.size());
+                for (Map.Entry<String, String> entry : index.hashes.entrySet()) {
+                    lines.add(entry.getKey() + "," + entry.getValue());
+                }
+
+                Path temp = usersFile.resolveSibling(USERS_FILE + ".tmp");
+                Files.write(temp, lines, StandardCharsets.UTF_8);
+                try {
+                    Files.move(temp, usersFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, usersFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                BasicFileAttributes after = Files.readAttributes(usersFile, BasicFileAttributes.class);
+                index.size = after.size();
+                index.lastModified = after.lastModifiedTime().toMillis();
+                index.garbage = 0;
+            } catch (IOException e) {
+                System.err.println("Error compacting users file: " + e.getMessage());
+            }
+        }
+    }
+
+    private static boolean matches(Index index, BasicFileAttributes attributes) {
+        return index.size == attributes.size() && index.lastModified == attributes.lastModifiedTime().toMillis();
+    }
+
+    private static Path usersPath(String gameName) {
+        return Paths.get(gameName, USERS_FILE);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package crazyeights;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Card lookups and the play rule, cycling through the whole deck
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CardBenchmarks {
+    private final String[] codes = new String[Card.CARD_COUNT];
+    private int next;
+
+    public CardBenchmarks() {
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = Card.of(i).getCode();
+        }
+    }
+
+    @Benchmark
+    public Card fromCode() {
+        next = (next + 1) % Card.CARD_COUNT;
+        return Card.fromCode(codes[next]);
+    }
+
+    @Benchmark
+    public String getCode() {
+        next = (next + 1) % Card.CARD_COUNT;
+        return Card.of(next).getCode();
+    }
+
+    @Benchmark
+    public boolean isValidPlay() {
+        next = (next + 1) % Card.CARD_COUNT;
+        return Rules.isValidPlay(Card.of(next), Card.of((next * 7) % Card.CARD_COUNT));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package crazyeights;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Shuffling, drawing and dealing, the last per player count and hand size
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeckBenchmarks {
+    private final Deck shuffled = new Deck();
+    private final Deck drawn = new Deck();
+    private final SplittableRandom random = new SplittableRandom(1L);
+
+    @State(Scope.Thread)
+    public static class Table {
+        @Param({"2", "4", "6"})
+        public int players;
+
+        // Six hands of ten would leave no card to turn up, so the sizes stop at eight
+        @Param({"5", "7", "8"})
+        public int handSize;
+
+        final List<Player> seats = new ArrayList<>();
+
+        @Setup
+        public void seat() {
+            seats.clear();
+            for (int i = 0; i < players; i++) {
+                seats.add(new Player("p" + i));
+            }
+        }
+    }
+
+    @Benchmark
+    public Card shuffle() {
+        shuffled.shuffle(random);
+        return shuffled.peekTop();
+    }
+
+    @Benchmark
+    public Card drawCard() {
+        Card card = drawn.drawCard();
+        drawn.addCard(card);
+        return card;
+    }
+
+    // Deals from a fresh deck, then empties the hands again for the next deal
+    @Benchmark
+    public int dealCards(Table table) {
+        Deck deck = new Deck();
+        deck.dealCards(table.seats, table.handSize);
+        for (Player seat : table.seats) {
+            for (Card card : seat.getHand()) {
+                seat.playCard(card.getCode());
+            }
+        }
+        return deck.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package crazyeights;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Whole games through the Game API, from the deal to the last card, per player count
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmarks {
+    @Param({"2", "4", "6"})
+    public int players;
+
+    private final List<String> names = new ArrayList<>();
+    private long seed;
+
+    @Setup
+    public void seat() {
+        names.clear();
+        for (int i = 0; i < players; i++) {
+            names.add("p" + i);
+        }
+    }
+
+    @Benchmark
+    public int fullGame() {
+        Game game = new Game("bench", names, new Deck());
+        game.initializeGame(seed++);
+        return playOut(game);
+    }
+
+    // Plays the first legal card, otherwise draws, otherwise passes, until the game ends
+    static int playOut(Game game) {
+        int moves = 0;
+        while (!game.isGameOver()) {
+            if (step(game) == null) {
+                break;
+            }
+            moves++;
+        }
+        return moves;
+    }
+
+    // One move of a playOut; null if the player had to draw from an empty pile
+    static Game step(Game game) {
+        Player player = game.getCurrentPlayer();
+        long playable = player.getHandMask() & Rules.legalResponses(game.getTopDiscard());
+        if (playable != 0) {
+            game.playCard(Hand.first(playable).getCode());
+        } else if (!player.hasDrawnThisTurn()) {
+            if (game.drawCard() == null) {
+                return null;
+            }
+        } else {
+            game.passTurn();
+        }
+        return game;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package crazyeights;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A loadGameState/saveGameState round trip of a game in a temp directory, per player count
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PersistenceBenchmarks {
+    @Param({"2", "4", "6"})
+    public int players;
+
+    private Path directory;
+    private CommandHandler handler;
+
+    @Setup
+    public void seedGame() throws IOException {
+        directory = Files.createTempDirectory("crazy-eights-bench");
+        String gameName = directory.toString();
+        List<String> names = new ArrayList<>();
+        GameFileManager.saveAdminCredentials(gameName, AuthenticationManager.hashPassword("bench"));
+        for (int i = 0; i < players; i++) {
+            names.add("p" + i);
+            GameFileManager.addUser(gameName, "p" + i, AuthenticationManager.hashPassword("bench"));
+        }
+
+        Game game = new Game(gameName, names, new Deck());
+        game.initializeGame(1L);
+        handler = new CommandHandler(new String[] {"--game", gameName});
+        handler.saveGameState(game);
+    }
+
+    @TearDown
+    public void deleteGame() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int roundTrip() throws IOException {
+        Game game = handler.loadGameState();
+        handler.saveGameState(game);
+        return game.getCurrentPlayerIndex();
+    }
+}
\ No newline at end of file
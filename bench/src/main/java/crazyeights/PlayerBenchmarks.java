@@ -0,0 +1,44 @@
+package crazyeights;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Whether a hand can answer a top card, per hand size
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayerBenchmarks {
+    @Param({"5", "7", "10"})
+    public int handSize;
+
+    private Player player;
+    private int next;
+
+    @Setup
+    public void deal() {
+        player = new Player("bench");
+        Deck deck = new Deck();
+        deck.shuffle(1L);
+        deck.dealCards(List.of(player), handSize);
+    }
+
+    @Benchmark
+    public boolean canPlay() {
+        next = (next + 1) % Card.CARD_COUNT;
+        return player.canPlay(Card.of(next));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package crazyeights;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Moves posted to one table or to many at once; each game's moves run in order on its mailbox
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ServiceBenchmarks {
+    private static final int MOVES = 1000;
+
+    @Param({"1", "1000"})
+    public int games;
+
+    private Game[] tables;
+    private GameService service;
+
+    @Setup(Level.Trial)
+    public void open() {
+        tables = new Game[games];
+        for (int i = 0; i < games; i++) {
+            tables[i] = new Game("table" + i, List.of("p0", "p1", "p2", "p3"), new Deck());
+            tables[i].initializeGame(i);
+        }
+        service = new GameService();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        service.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int move() {
+        List<CompletableFuture<Integer>> pending = new ArrayList<>(Math.min(games, MOVES));
+        for (int i = 0; i < MOVES; i++) {
+            Game table = tables[i % games];
+            CompletableFuture<Integer> moved = service.submit(table.getGameName(), () -> step(table));
+            if (pending.size() < games) {
+                pending.add(moved);
+            } else {
+                pending.set(i % games, moved);
+            }
+        }
+        int moves = 0;
+        for (CompletableFuture<Integer> moved : pending) {
+            moves += moved.join();
+        }
+        return moves;
+    }
+
+    // One move, dealing a new game once this one is over
+    private static int step(Game game) {
+        if (game.isGameOver()) {
+            game.initializeGame(game.getSeed() + 1);
+            return 0;
+        }
+        GameBenchmarks.step(game);
+        return 1;
+    }
+}
\ No newline at end of file
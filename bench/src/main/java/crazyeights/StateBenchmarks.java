@@ -0,0 +1,70 @@
+package crazyeights;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The GameState operations bot searches run in their inner loops, per player count
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StateBenchmarks {
+    @Param({"2", "4", "6"})
+    public int players;
+
+    private GameState start;
+    private GameState copy;
+    private final SplittableRandom deals = new SplittableRandom(1L);
+
+    @Setup
+    public void deal() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            names.add("p" + i);
+        }
+        Game game = new Game("bench", names, new Deck());
+        game.initializeGame(1L);
+        start = game.getState();
+        copy = new GameState(players);
+    }
+
+    @Benchmark
+    public GameState copyInto() {
+        start.copyInto(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public long applyUndo() {
+        long changed = start.applyMove(Long.numberOfTrailingZeros(start.legalMoves()));
+        start.undoMove();
+        return changed;
+    }
+
+    // Copy, deal the hidden cards at random and play out, as one ISMCTS iteration does
+    @Benchmark
+    public int rollout() {
+        start.copyInto(copy);
+        copy.determinize(0, deals);
+        for (long legal = copy.legalMoves(); legal != 0; legal = copy.legalMoves()) {
+            long plays = legal & Hand.FULL_DECK;
+            copy.applyMove(Long.numberOfTrailingZeros(plays != 0 ? plays : legal));
+        }
+        return copy.getWinner();
+    }
+}
\ No newline at end of file